@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+// A shared cache of parsed album files, so components that read the same file don't each parse it again.
+// Entries are keyed by canonical path, size and last-modified time, so a changed file is simply a different key.
+// Caching a newer version of a file drops the older ones, and a load that finishes after a newer version
+// of its file has been cached is returned to its caller but not cached.
+// The least recently used entries are evicted once the estimated heap used by all entries exceeds maxBytes.
+// If several threads ask for the same uncached file at once, only one of them parses it and the rest wait for its result.
+//
+// The returned arrays are shared between callers and must not be modified.
+public class AlbumDatasetCache {
+	private final long maxBytes;
+
+	// All of the following are guarded by this.
+	private final LinkedHashMap<DatasetKey, CachedDataset> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final HashMap<DatasetKey, CompletableFuture<Album[]>> loading = new HashMap<>();
+	private long usedBytes;
+	private long hits;
+	private long misses;
+	private long loads;
+	private long loadNanos;
+	private long evictions;
+	private long purges;
+
+	public AlbumDatasetCache(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Byte budget must be positive");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	public Album[] get(String path) throws IOException {
+		Path canonical = Paths.get(path).toRealPath();
+		BasicFileAttributes attributes = Files.readAttributes(canonical, BasicFileAttributes.class);
+		DatasetKey key = new DatasetKey(canonical.toString(), attributes.size(),
+				attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+
+		CompletableFuture<Album[]> pending;
+		boolean loader = false;
+		synchronized (this) {
+			CachedDataset cached = entries.get(key);
+			if (cached != null) {
+				hits++;
+				return cached.albums;
+			}
+
+			misses++;
+			pending = loading.get(key);
+			if (pending == null) {
+				pending = new CompletableFuture<>();
+				loading.put(key, pending);
+				loader = true;
+			}
+		}
+
+		if (!loader) {
+			return await(pending);
+		}
+
+		long start = System.nanoTime();
+		Album[] albums;
+		try {
+			albums = FileIOPart2.readAlbumsFromFile(key.path);
+		} catch (IOException | RuntimeException | Error e) {
+			synchronized (this) {
+				loading.remove(key);
+			}
+			pending.completeExceptionally(e);
+			throw e;
+		}
+		long elapsed = System.nanoTime() - start;
+
+		synchronized (this) {
+			loading.remove(key);
+			loads++;
+			loadNanos += elapsed;
+			put(key, albums);
+		}
+		pending.complete(albums);
+		return albums;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	// The number of times a file was actually parsed. Concurrent misses on the same file share one load.
+	public synchronized long getLoads() {
+		return loads;
+	}
+
+	public synchronized long getLoadNanos() {
+		return loadNanos;
+	}
+
+	// Entries removed to stay within maxBytes.
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	// Entries removed because a newer version of their file was cached.
+	public synchronized long getPurges() {
+		return purges;
+	}
+
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d entries, %d/%d bytes, %d hits, %d misses, %d loads (%.1f ms), %d evictions, %d purges",
+				entries.size(), usedBytes, maxBytes, hits, misses, loads, loadNanos / 1e6, evictions, purges);
+	}
+
+	// Must be called while holding this.
+	private void put(DatasetKey key, Album[] albums) {
+		// A slow load of an old version can finish after a newer version has been cached. Don't let it replace that.
+		for (DatasetKey cached : entries.keySet()) {
+			if (key.isOlderThan(cached)) {
+				return;
+			}
+		}
+
+		// Older versions of the same file can never be hit again.
+		Iterator<Map.Entry<DatasetKey, CachedDataset>> stale = entries.entrySet().iterator();
+		while (stale.hasNext()) {
+			Map.Entry<DatasetKey, CachedDataset> entry = stale.next();
+			if (entry.getKey().isOlderThan(key)) {
+				usedBytes -= entry.getValue().bytes;
+				stale.remove();
+				purges++;
+			}
+		}
+
+		long bytes = estimateFootprint(albums);
+		if (bytes > maxBytes) {
+			// Caching this would evict everything else and still not fit.
+			return;
+		}
+
+		entries.put(key, new CachedDataset(albums, bytes));
+		usedBytes += bytes;
+
+		// Iteration order is least recently used first.
+		Iterator<CachedDataset> oldest = entries.values().iterator();
+		while (usedBytes > maxBytes) {
+			usedBytes -= oldest.next().bytes;
+			oldest.remove();
+			evictions++;
+		}
+	}
+
+	private static Album[] await(CompletableFuture<Album[]> pending) throws IOException {
+		try {
+			return pending.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw new IOException(cause.getMessage(), cause);
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw (Error) cause;
+		}
+	}
+
+	// Assumes a 64-bit JVM with compressed references. Each Album is 32 bytes plus a 4 byte array slot,
+	// and its Strings are sized the same way as in AlbumStringTable.
+	static long estimateFootprint(Album[] albums) {
+		long bytes = 16 + 4L * albums.length;
+		for (Album album : albums) {
+			bytes += 32 + AlbumStringTable.estimateFootprint(album.getTitle()) + AlbumStringTable.estimateFootprint(album.getArtist())
+					+ AlbumStringTable.estimateFootprint(album.getGenre());
+		}
+		return bytes;
+	}
+}
+
+class DatasetKey {
+	final String path;
+	final long size;
+	final long lastModified;
+
+	DatasetKey(String path, long size, long lastModified) {
+		this.path = path;
+		this.size = size;
+		this.lastModified = lastModified;
+	}
+
+	// Whether this is an earlier version of the same file than other.
+	boolean isOlderThan(DatasetKey other) {
+		return path.equals(other.path) && lastModified < other.lastModified;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof DatasetKey)) {
+			return false;
+		}
+		DatasetKey key = (DatasetKey) other;
+		return path.equals(key.path) && size == key.size && lastModified == key.lastModified;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(path, size, lastModified);
+	}
+}
+
+class CachedDataset {
+	final Album[] albums;
+	final long bytes;
+
+	CachedDataset(Album[] albums, long bytes) {
+		this.albums = albums;
+		this.bytes = bytes;
+	}
+}
@@ -0,0 +1,191 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Secondary indexes over a loaded Album[].
+// Every query answers with positions into the indexed albums (see get()), never with copies of the albums.
+// Albums appended after construction (for example through FileIOPart2.writeAlbumToFile) are added incrementally.
+public class AlbumIndex {
+	private static final int NO_POSITION = -1;
+	// Ranks below this, or below twice the number of albums, are direct-addressed. Rarer, larger ranks go in a map,
+	// so one huge rank cannot make the rank array huge.
+	private static final int DIRECT_RANK_LIMIT = 1 << 16;
+
+	private Album[] albums;
+	private int size;
+
+	// Direct-addressed: positionsByRank[rank] is the position of the album with that rank, or NO_POSITION.
+	private int[] positionsByRank;
+	private final HashMap<Integer, Integer> sparsePositionsByRank = new HashMap<>();
+
+	// Album positions ordered by year, with the matching years kept alongside for binary search.
+	private int[] yearOrder;
+	private int[] sortedYears;
+
+	private final HashMap<String, IntList> positionsByArtist = new HashMap<>();
+	private final HashMap<String, IntList> positionsByGenre = new HashMap<>();
+
+	public AlbumIndex(Album[] albums) {
+		if (albums == null) {
+			throw new IllegalArgumentException("Albums cannot be null");
+		}
+
+		int capacity = Math.max(albums.length, 16);
+		this.albums = new Album[capacity];
+		this.positionsByRank = new int[capacity];
+		Arrays.fill(positionsByRank, NO_POSITION);
+		this.yearOrder = new int[capacity];
+		this.sortedYears = new int[capacity];
+
+		for (int i = 0; i < albums.length; i++) {
+			append(albums[i]);
+		}
+
+		// Build the year index in one sort rather than one insertion per album, which is quadratic for unsorted input.
+		// Each key packs the year above the position, so ties stay in insertion order.
+		long[] keys = new long[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = (long) this.albums[i].getYear() << 32 | i;
+		}
+		Arrays.sort(keys);
+		for (int i = 0; i < size; i++) {
+			yearOrder[i] = (int) keys[i];
+			sortedYears[i] = (int) (keys[i] >> 32);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public Album get(int position) {
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("Position " + position + " is out of bounds for size " + size);
+		}
+		return albums[position];
+	}
+
+	// Adds an album to every index and returns its position.
+	// If another album already has the same rank, the rank index points at the newer one.
+	public final int add(Album album) {
+		int position = append(album);
+
+		// Insert after any albums with the same year so that ties stay in insertion order.
+		// Appending in year order (the common case) shifts nothing.
+		int year = album.getYear();
+		int insertAt = upperBound(year, position);
+		System.arraycopy(yearOrder, insertAt, yearOrder, insertAt + 1, position - insertAt);
+		System.arraycopy(sortedYears, insertAt, sortedYears, insertAt + 1, position - insertAt);
+		yearOrder[insertAt] = position;
+		sortedYears[insertAt] = year;
+
+		return position;
+	}
+
+	// Adds an album to every index except the year index and returns its position.
+	private int append(Album album) {
+		validate(album);
+
+		if (size == albums.length) {
+			int capacity = albums.length * 2;
+			albums = Arrays.copyOf(albums, capacity);
+			yearOrder = Arrays.copyOf(yearOrder, capacity);
+			sortedYears = Arrays.copyOf(sortedYears, capacity);
+		}
+
+		int position = size++;
+		albums[position] = album;
+
+		int rank = album.getRank();
+		int directLimit = Math.max(DIRECT_RANK_LIMIT, size * 2);
+		if (rank >= positionsByRank.length && rank < directLimit) {
+			int oldLength = positionsByRank.length;
+			positionsByRank = Arrays.copyOf(positionsByRank, Math.min(Math.max(rank + 1, oldLength * 2), directLimit));
+			Arrays.fill(positionsByRank, oldLength, positionsByRank.length, NO_POSITION);
+		}
+		if (rank < positionsByRank.length) {
+			positionsByRank[rank] = position;
+			if (!sparsePositionsByRank.isEmpty()) {
+				sparsePositionsByRank.remove(rank);
+			}
+		} else {
+			sparsePositionsByRank.put(rank, position);
+		}
+
+		positionsByArtist.computeIfAbsent(album.getArtist(), key -> new IntList()).add(position);
+		positionsByGenre.computeIfAbsent(album.getGenre(), key -> new IntList()).add(position);
+
+		return position;
+	}
+
+	// Returns the position of the album with the given rank, or -1 if there is none.
+	public int positionOfRank(int rank) {
+		if (rank < 0) {
+			return NO_POSITION;
+		}
+		if (rank < positionsByRank.length && positionsByRank[rank] != NO_POSITION) {
+			return positionsByRank[rank];
+		}
+		return sparsePositionsByRank.getOrDefault(rank, NO_POSITION);
+	}
+
+	// Throws IllegalArgumentException if add() would reject the album, so callers can check before changing anything else.
+	static void validate(Album album) {
+		if (album == null) {
+			throw new IllegalArgumentException("Album cannot be null");
+		}
+		if (album.getRank() < 0) {
+			throw new IllegalArgumentException("Rank cannot be negative");
+		}
+	}
+
+	// Returns the positions of all albums released between fromYear and toYear (both inclusive), ordered by year.
+	public int[] positionsInYearRange(int fromYear, int toYear) {
+		if (fromYear > toYear) {
+			return new int[0];
+		}
+
+		int start = lowerBound(fromYear, size);
+		int end = upperBound(toYear, size);
+		return Arrays.copyOfRange(yearOrder, start, end);
+	}
+
+	public int[] positionsByArtist(String artist) {
+		IntList positions = positionsByArtist.get(artist);
+		return positions == null ? new int[0] : positions.toArray();
+	}
+
+	public int[] positionsByGenre(String genre) {
+		IntList positions = positionsByGenre.get(genre);
+		return positions == null ? new int[0] : positions.toArray();
+	}
+
+	// First index in sortedYears[0, length) whose year is >= year.
+	private int lowerBound(int year, int length) {
+		int low = 0;
+		int high = length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sortedYears[mid] < year) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	// First index in sortedYears[0, length) whose year is > year.
+	private int upperBound(int year, int length) {
+		int low = 0;
+		int high = length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sortedYears[mid] <= year) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// Loads albums in the same CSV format as FileIOPart2.readAlbumsFromFile, but parses the raw bytes directly.
+// With interning enabled, the artist and genre columns are deduplicated through a fresh AlbumStringTable per load,
+// so repeated values share a single String instead of each row holding its own copy.
+// With lazy text enabled, the loader produces LazyAlbums that only decode their text columns when first asked for them.
+public class AlbumLoader {
+	static final int COLUMNS = 5;
+
+	private final boolean internColumns;
+	private final boolean lazyText;
+	private AlbumStringTable artists;
+	private AlbumStringTable genres;
+	private int line;
+
+	public AlbumLoader(boolean internColumns) {
+		this(internColumns, false);
+	}
+
+	public AlbumLoader(boolean internColumns, boolean lazyText) {
+		// Interning needs the decoded value at load time, which is exactly what lazy text avoids.
+		if (internColumns && lazyText) {
+			throw new IllegalArgumentException("Interned columns and lazy text cannot be combined");
+		}
+
+		this.internColumns = internColumns;
+		this.lazyText = lazyText;
+	}
+
+	public Album[] load(String path) throws IOException {
+		byte[] data = Files.readAllBytes(Paths.get(path));
+
+		if (internColumns) {
+			artists = new AlbumStringTable("artist");
+			genres = new AlbumStringTable("genre");
+		}
+
+		// The first line is the header.
+		line = 1;
+		int start = nextLine(data, lineEnd(data, 0, data.length), data.length);
+		return parse(data, start, data.length);
+	}
+
+	// The intern tables from the most recent load, or null if interning is disabled.
+	public AlbumStringTable getArtistTable() {
+		return artists;
+	}
+
+	public AlbumStringTable getGenreTable() {
+		return genres;
+	}
+
+	// The 1-based number of the line parsed most recently by load(), counting the header as line 1.
+	// If load() threw while parsing, this is the line that could not be parsed.
+	public int getLine() {
+		return line;
+	}
+
+	Album[] parse(byte[] data, int from, int to) {
+		Album[] albums = new Album[countLines(data, from, to)];
+		int[] fields = new int[COLUMNS * 2];
+
+		int lineStart = from;
+		for (int i = 0; i < albums.length; i++) {
+			line++;
+			int lineEnd = lineEnd(data, lineStart, to);
+			splitFields(data, lineStart, lineEnd, fields);
+
+			int rank = parseInt(data, fields[0], fields[1]);
+			int year = parseInt(data, fields[2], fields[3]);
+
+			if (lazyText) {
+				albums[i] = new LazyAlbum(data, rank, year, fields);
+			} else {
+				String title = decode(data, fields[4], fields[5]);
+				String artist = internColumns ? artists.intern(data, fields[6], fields[7] - fields[6]) : decode(data, fields[6], fields[7]);
+				String genre = internColumns ? genres.intern(data, fields[8], fields[9] - fields[8]) : decode(data, fields[8], fields[9]);
+				albums[i] = new Album(title, artist, rank, year, genre);
+			}
+
+			lineStart = nextLine(data, lineEnd, to);
+		}
+
+		return albums;
+	}
+
+	// Counts lines the same way BufferedReader.readLine() does: a final line without a terminator still counts.
+	static int countLines(byte[] data, int from, int to) {
+		int count = 0;
+		int lineStart = from;
+		while (lineStart < to) {
+			lineStart = nextLine(data, lineEnd(data, lineStart, to), to);
+			count++;
+		}
+		return count;
+	}
+
+	// Returns the index of the '\n' or '\r' that ends the line starting at from, or to if the line is unterminated.
+	static int lineEnd(byte[] data, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (data[i] == '\n' || data[i] == '\r') {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	// Returns the start of the line after the terminator at lineEnd, treating "\r\n" as a single terminator.
+	static int nextLine(byte[] data, int lineEnd, int to) {
+		if (lineEnd >= to) {
+			return to;
+		}
+		if (data[lineEnd] == '\r' && lineEnd + 1 < to && data[lineEnd + 1] == '\n') {
+			return lineEnd + 2;
+		}
+		return lineEnd + 1;
+	}
+
+	// Splits [start, end) on commas and stores the trimmed bounds of the first five columns in fields,
+	// as start/end pairs. Any columns after the fifth are ignored, just as with String.split().
+	static void splitFields(byte[] data, int start, int end, int[] fields) {
+		int column = 0;
+		int columnStart = start;
+		for (int i = start; i <= end && column < COLUMNS; i++) {
+			if (i == end || data[i] == ',') {
+				int trimmedStart = columnStart;
+				int trimmedEnd = i;
+				// Same rule as String.trim(): drop anything at or below a space. UTF-8 continuation bytes are never dropped.
+				while (trimmedStart < trimmedEnd && (data[trimmedStart] & 0xFF) <= ' ') {
+					trimmedStart++;
+				}
+				while (trimmedEnd > trimmedStart && (data[trimmedEnd - 1] & 0xFF) <= ' ') {
+					trimmedEnd--;
+				}
+
+				fields[column * 2] = trimmedStart;
+				fields[column * 2 + 1] = trimmedEnd;
+				column++;
+				columnStart = i + 1;
+			}
+		}
+
+		if (column < COLUMNS) {
+			throw new IllegalArgumentException("Expected " + COLUMNS + " columns but found " + column + ": " + decode(data, start, end));
+		}
+	}
+
+	// Parses a plain decimal int without creating a String.
+	// Anything else (signs, overflow, stray characters) is handed to Integer.parseInt so the exception is the same.
+	static int parseInt(byte[] data, int start, int end) {
+		if (start == end || end - start > 9) {
+			return Integer.parseInt(decode(data, start, end));
+		}
+
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = data[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return Integer.parseInt(decode(data, start, end));
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	static String decode(byte[] data, int start, int end) {
+		return new String(data, start, end - start, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,450 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32C;
+
+// A crash-safe, append-only log of album records.
+// Unlike the text lines written by FileIOPart2.writeAlbumToFile, a record torn by a crash is detected and dropped
+// instead of breaking the next load.
+//
+// The file starts with a header (magic number and a random log id), followed by frames:
+//   int payload length, int CRC32C of the payload, payload (rank, year, then title, artist and genre as length-prefixed UTF-8).
+//
+// Appends are buffered and written with a single force() every syncEvery records (or on sync()), so a crash
+// loses at most the records since the last sync. After each force(), the offset of the end of the synced data is
+// stored in a checkpoint file next to the log. Opening the log only has to verify the frames after that checkpoint,
+// and truncates the file after the last valid frame.
+//
+// Compaction rewrites the log as a clean snapshot: every valid frame in order, under a fresh header, with nothing
+// after the last frame. No record is ever merged or dropped by it. Once compactAfterBytes have been appended since
+// the last compaction (or since opening), and at least as much as the log held then, the next sync() compacts the log.
+// The second condition keeps the total copying proportional to the bytes appended.
+// compactKeepingLatestPerRank() is a separate, explicit operation that does drop records, and is never automatic.
+public class AlbumLog implements Closeable {
+	private static final int MAGIC = 0x414C4231;
+	private static final int HEADER_SIZE = 12;
+	private static final int FRAME_HEADER_SIZE = 8;
+	private static final int MAX_PAYLOAD_SIZE = 1 << 20;
+	private static final int PENDING_LIMIT = 64 * 1024;
+	private static final long DEFAULT_COMPACT_AFTER_BYTES = 64L * 1024 * 1024;
+
+	private final Path path;
+	private final Path checkpointPath;
+	private final int syncEvery;
+	private final long compactAfterBytes;
+
+	private FileChannel channel;
+	private long logId;
+	private long size;
+	private long syncedSize;
+	private long compactedSize;
+	private long truncatedBytes;
+
+	private ByteBuffer pending = ByteBuffer.allocate(PENDING_LIMIT);
+	private int pendingRecords;
+
+	public AlbumLog(String path, int syncEvery) throws IOException {
+		this(path, syncEvery, DEFAULT_COMPACT_AFTER_BYTES);
+	}
+
+	// compactAfterBytes of 0 turns off automatic compaction; compact() can still be called directly.
+	public AlbumLog(String path, int syncEvery, long compactAfterBytes) throws IOException {
+		if (syncEvery <= 0) {
+			throw new IllegalArgumentException("Sync interval must be positive");
+		}
+		if (compactAfterBytes < 0) {
+			throw new IllegalArgumentException("Compaction threshold cannot be negative");
+		}
+
+		this.path = Paths.get(path);
+		this.checkpointPath = Paths.get(path + ".checkpoint");
+		this.syncEvery = syncEvery;
+		this.compactAfterBytes = compactAfterBytes;
+
+		channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+		try {
+			if (channel.size() < HEADER_SIZE) {
+				// A new log, or one that crashed before its header was complete.
+				writeHeader(channel, ThreadLocalRandom.current().nextLong());
+			}
+			recover();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// The number of bytes cut from the end of the log when it was opened.
+	public synchronized long getTruncatedBytes() {
+		return truncatedBytes;
+	}
+
+	public synchronized void append(Album album) throws IOException {
+		ensureOpen();
+
+		// Large batches are written out early, but are still only forced once the batch is complete.
+		if (pending.position() >= PENDING_LIMIT) {
+			writePending();
+		}
+		pending = encode(album, pending);
+
+		pendingRecords++;
+		if (pendingRecords >= syncEvery) {
+			sync();
+		}
+	}
+
+	// Writes every buffered record and forces them to the storage device with a single force().
+	public synchronized void sync() throws IOException {
+		ensureOpen();
+		if (pendingRecords == 0) {
+			return;
+		}
+
+		writePending();
+		pendingRecords = 0;
+		channel.force(false);
+		syncedSize = size;
+		writeCheckpoint(size);
+
+		long appended = size - compactedSize;
+		if (compactAfterBytes > 0 && appended >= compactAfterBytes && appended >= compactedSize - HEADER_SIZE) {
+			compact();
+		}
+	}
+
+	// Returns every synced record, oldest first. Records appended since the last sync are not included,
+	// even if a large batch has already been written to the file.
+	public synchronized Album[] readAll() throws IOException {
+		ensureOpen();
+		List<Album> albums = new ArrayList<>();
+		scan(HEADER_SIZE, syncedSize, (position, checksum, payload) -> albums.add(decode(payload)));
+		return albums.toArray(new Album[0]);
+	}
+
+	// Rewrites the log as a clean snapshot of every synced record, in order. Frames are streamed from the log
+	// into a temporary file, which is forced and then atomically renamed over the log,
+	// so a crash during compaction leaves either the old log or the new one. The directory is forced after the rename,
+	// so the new log is still there after a crash.
+	public synchronized void compact() throws IOException {
+		sync();
+		rewrite(null);
+	}
+
+	// Like compact(), but keeps only the newest record for each rank, in the order those records were appended.
+	// Older records with the same rank are gone for good afterwards. Only the position of each rank's newest frame
+	// is held in memory, never the records themselves.
+	public synchronized void compactKeepingLatestPerRank() throws IOException {
+		sync();
+
+		HashMap<Integer, Long> latest = new HashMap<>();
+		scan(HEADER_SIZE, syncedSize, (position, checksum, payload) -> latest.put(payload.getInt(0), position));
+
+		long[] kept = new long[latest.size()];
+		int i = 0;
+		for (long position : latest.values()) {
+			kept[i++] = position;
+		}
+		Arrays.sort(kept);
+		rewrite(kept);
+	}
+
+	// Streams the synced frames into a new log and renames it over this one.
+	// If kept is not null, only the frames at those positions (in ascending order) are copied.
+	private void rewrite(long[] kept) throws IOException {
+		Path temporary = Paths.get(path + ".compact");
+		long compactedId = ThreadLocalRandom.current().nextLong();
+		try (FileChannel snapshot = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeHeader(snapshot, compactedId);
+
+			ByteBuffer frames = ByteBuffer.allocate(PENDING_LIMIT);
+			long[] written = { HEADER_SIZE };
+			int[] next = { 0 };
+			scan(HEADER_SIZE, syncedSize, (position, checksum, payload) -> {
+				if (kept != null) {
+					if (next[0] == kept.length || kept[next[0]] != position) {
+						return;
+					}
+					next[0]++;
+				}
+				if (frames.remaining() < FRAME_HEADER_SIZE + payload.remaining()) {
+					written[0] += writeFully(snapshot, frames, written[0]);
+				}
+				if (frames.remaining() < FRAME_HEADER_SIZE + payload.remaining()) {
+					// A frame larger than the buffer goes out on its own.
+					ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.remaining());
+					frame.putInt(payload.remaining()).putInt(checksum).put(payload);
+					written[0] += writeFully(snapshot, frame, written[0]);
+				} else {
+					frames.putInt(payload.remaining()).putInt(checksum).put(payload);
+				}
+			});
+			writeFully(snapshot, frames, written[0]);
+			snapshot.force(true);
+		}
+
+		channel.close();
+		try {
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			logId = compactedId;
+			forceDirectory(path.toAbsolutePath().getParent());
+		} finally {
+			// If the move failed, this reopens the old log, which is still intact.
+			channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			size = channel.size();
+			syncedSize = size;
+			compactedSize = size;
+		}
+		// Until this is written, the old checkpoint names the old log id, so it is ignored on recovery.
+		writeCheckpoint(size);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel == null) {
+			return;
+		}
+
+		try {
+			sync();
+		} finally {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private void writePending() throws IOException {
+		pending.flip();
+		while (pending.hasRemaining()) {
+			size += channel.write(pending, size);
+		}
+		pending.clear();
+	}
+
+	private void recover() throws IOException {
+		long fileSize = channel.size();
+		logId = readLogId(channel);
+
+		long start = readCheckpoint();
+		if (start < HEADER_SIZE || start > fileSize) {
+			start = HEADER_SIZE;
+		}
+
+		long end = scan(start, fileSize, null);
+		if (end < fileSize) {
+			truncatedBytes = fileSize - end;
+			channel.truncate(end);
+			channel.force(false);
+		}
+		size = end;
+		syncedSize = end;
+		compactedSize = end;
+		writeCheckpoint(size);
+	}
+
+	// Verifies frames in [start, fileSize) until the first torn or corrupt one and returns where the valid data ends.
+	// If visitor is not null, it is called for every valid frame.
+	private long scan(long start, long fileSize, FrameVisitor visitor) throws IOException {
+		ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+		ByteBuffer payload = ByteBuffer.allocate(256);
+		CRC32C crc = new CRC32C();
+
+		long position = start;
+		while (position + FRAME_HEADER_SIZE <= fileSize) {
+			frameHeader.clear();
+			readFully(frameHeader, position);
+			int payloadSize = frameHeader.getInt(0);
+			int checksum = frameHeader.getInt(4);
+			if (payloadSize < 20 || payloadSize > MAX_PAYLOAD_SIZE || position + FRAME_HEADER_SIZE + payloadSize > fileSize) {
+				break;
+			}
+
+			if (payload.capacity() < payloadSize) {
+				payload = ByteBuffer.allocate(Math.max(payloadSize, payload.capacity() * 2));
+			}
+			payload.clear();
+			payload.limit(payloadSize);
+			readFully(payload, position + FRAME_HEADER_SIZE);
+
+			crc.reset();
+			crc.update(payload.array(), 0, payloadSize);
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+
+			if (visitor != null) {
+				payload.flip();
+				visitor.visit(position, checksum, payload);
+			}
+
+			position += FRAME_HEADER_SIZE + payloadSize;
+		}
+
+		return position;
+	}
+
+	// Writes the buffer's contents at position, clears it, and returns how many bytes were written.
+	private static int writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+		buffer.flip();
+		int length = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			target.write(buffer, position + buffer.position());
+		}
+		buffer.clear();
+		return length;
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of " + path);
+			}
+		}
+	}
+
+	// Appends one frame for album to buffer, growing it if needed, and returns the buffer to keep using.
+	private static ByteBuffer encode(Album album, ByteBuffer buffer) {
+		byte[] title = album.getTitle().getBytes(StandardCharsets.UTF_8);
+		byte[] artist = album.getArtist().getBytes(StandardCharsets.UTF_8);
+		byte[] genre = album.getGenre().getBytes(StandardCharsets.UTF_8);
+		int payloadSize = 20 + title.length + artist.length + genre.length;
+		if (payloadSize > MAX_PAYLOAD_SIZE) {
+			throw new IllegalArgumentException("Album record is too large: " + payloadSize + " bytes");
+		}
+
+		if (buffer.remaining() < FRAME_HEADER_SIZE + payloadSize) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + FRAME_HEADER_SIZE + payloadSize));
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+
+		int frameStart = buffer.position();
+		buffer.putInt(payloadSize);
+		buffer.putInt(0);
+		int payloadStart = buffer.position();
+		buffer.putInt(album.getRank());
+		buffer.putInt(album.getYear());
+		buffer.putInt(title.length).put(title);
+		buffer.putInt(artist.length).put(artist);
+		buffer.putInt(genre.length).put(genre);
+
+		CRC32C crc = new CRC32C();
+		crc.update(buffer.array(), payloadStart, payloadSize);
+		buffer.putInt(frameStart + 4, (int) crc.getValue());
+		return buffer;
+	}
+
+	private static Album decode(ByteBuffer payload) {
+		int rank = payload.getInt();
+		int year = payload.getInt();
+		String title = getString(payload);
+		String artist = getString(payload);
+		String genre = getString(payload);
+		return new Album(title, artist, rank, year, genre);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+
+	private void ensureOpen() {
+		if (channel == null) {
+			throw new IllegalStateException("Log is closed");
+		}
+	}
+
+	private static void writeHeader(FileChannel channel, long logId) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putLong(logId).flip();
+		channel.truncate(0);
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+		channel.force(true);
+	}
+
+	// Makes a rename in the directory durable. Some platforms, such as Windows, cannot open a directory;
+	// there is nothing more we can do on those.
+	private static void forceDirectory(Path directory) throws IOException {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(directory, StandardOpenOption.READ);
+		} catch (IOException e) {
+			return;
+		}
+		try (channel) {
+			channel.force(true);
+		}
+	}
+
+	private long readLogId(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0) {
+				throw new IOException(path + " is not an album log: header is incomplete");
+			}
+		}
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException(path + " is not an album log: bad magic number");
+		}
+		return header.getLong(4);
+	}
+
+	// The checkpoint holds the log id, the synced offset, and a CRC32C of both.
+	// A missing, torn, or stale checkpoint (from another log id) just means scanning from the start.
+	private long readCheckpoint() throws IOException {
+		if (!Files.exists(checkpointPath)) {
+			return HEADER_SIZE;
+		}
+
+		byte[] bytes = Files.readAllBytes(checkpointPath);
+		if (bytes.length != 20) {
+			return HEADER_SIZE;
+		}
+
+		ByteBuffer checkpoint = ByteBuffer.wrap(bytes);
+		CRC32C crc = new CRC32C();
+		crc.update(bytes, 0, 16);
+		if (checkpoint.getLong(0) != logId || checkpoint.getInt(16) != (int) crc.getValue()) {
+			return HEADER_SIZE;
+		}
+		return checkpoint.getLong(8);
+	}
+
+	private void writeCheckpoint(long offset) throws IOException {
+		ByteBuffer checkpoint = ByteBuffer.allocate(20);
+		checkpoint.putLong(logId).putLong(offset);
+		CRC32C crc = new CRC32C();
+		crc.update(checkpoint.array(), 0, 16);
+		checkpoint.putInt((int) crc.getValue()).flip();
+
+		try (FileChannel file = FileChannel.open(checkpointPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+			while (checkpoint.hasRemaining()) {
+				file.write(checkpoint, checkpoint.position());
+			}
+			file.force(false);
+		}
+	}
+
+	// Called by scan() for each valid frame; payload holds exactly the frame's payload.
+	private interface FrameVisitor {
+		void visit(long position, int checksum, ByteBuffer payload) throws IOException;
+	}
+}
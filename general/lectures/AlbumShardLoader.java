@@ -0,0 +1,139 @@
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+// Loads many album CSV shards concurrently and merges them into one dataset.
+// Each shard is loaded on its own virtual thread, but at most maxOpenFiles shards are read at the same time.
+// A shard that fails to load is reported as a ShardError, and the other shards are still loaded.
+public class AlbumShardLoader {
+	private final int maxOpenFiles;
+
+	public AlbumShardLoader(int maxOpenFiles) {
+		if (maxOpenFiles <= 0) {
+			throw new IllegalArgumentException("Max open files must be positive");
+		}
+		this.maxOpenFiles = maxOpenFiles;
+	}
+
+	// The merged albums keep the order of paths, and each shard's albums keep their order within the file.
+	public ShardLoadResult load(List<String> paths) throws InterruptedException {
+		Semaphore openFiles = new Semaphore(maxOpenFiles);
+		List<Future<Album[]>> shards = new ArrayList<>(paths.size());
+		List<ShardError> errors = new ArrayList<>();
+
+		ExecutorService executor = newExecutor();
+		try {
+			for (String path : paths) {
+				shards.add(executor.submit(() -> {
+					openFiles.acquire();
+					try {
+						return loadShard(path);
+					} finally {
+						openFiles.release();
+					}
+				}));
+			}
+
+			List<Album[]> loaded = new ArrayList<>(paths.size());
+			int total = 0;
+			for (int i = 0; i < shards.size(); i++) {
+				try {
+					Album[] albums = shards.get(i).get();
+					loaded.add(albums);
+					total += albums.length;
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof ShardError) {
+						errors.add((ShardError) cause);
+					} else {
+						errors.add(new ShardError(paths.get(i), 0, cause));
+					}
+				}
+			}
+
+			Album[] merged = new Album[total];
+			int position = 0;
+			for (Album[] albums : loaded) {
+				System.arraycopy(albums, 0, merged, position, albums.length);
+				position += albums.length;
+			}
+
+			return new ShardLoadResult(merged, errors);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Album[] loadShard(String path) throws ShardError {
+		AlbumLoader loader = new AlbumLoader(false);
+		try {
+			return loader.load(path);
+		} catch (IllegalArgumentException e) {
+			// Includes NumberFormatException- the loader knows which line it was on.
+			throw new ShardError(path, loader.getLine(), e);
+		} catch (Exception e) {
+			throw new ShardError(path, 0, e);
+		}
+	}
+
+	// Virtual threads need Java 21. On older runtimes, fall back to one platform thread per open file.
+	private ExecutorService newExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(maxOpenFiles);
+		}
+	}
+}
+
+class ShardLoadResult {
+	private final Album[] albums;
+	private final List<ShardError> errors;
+
+	public ShardLoadResult(Album[] albums, List<ShardError> errors) {
+		this.albums = albums;
+		this.errors = errors;
+	}
+
+	public Album[] getAlbums() {
+		return albums;
+	}
+
+	public List<ShardError> getErrors() {
+		return errors;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d albums, %d failed shards", albums.length, errors.size());
+	}
+}
+
+// Why a single shard could not be loaded.
+// line is the 1-based line that could not be parsed, or 0 if the failure was not tied to a line (such as an IOException).
+class ShardError extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	private final String path;
+	private final int line;
+
+	public ShardError(String path, int line, Throwable cause) {
+		super(line > 0 ? path + ":" + line + ": " + cause : path + ": " + cause, cause);
+		this.path = path;
+		this.line = line;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public int getLine() {
+		return line;
+	}
+}
@@ -0,0 +1,141 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// A per-load intern table for one repeated text column (such as an album's genre or artist).
+// Lookups are keyed on the raw UTF-8 bytes of the field, so a String is only decoded the first time a value is seen.
+// Every later occurrence of the same bytes returns that one shared String.
+// Unlike String.intern(), the table is a plain object: it goes away with the loader that created it.
+public class AlbumStringTable {
+	private final String column;
+
+	// Open addressing with linear probing. A null entry in strings marks an empty slot.
+	private String[] strings;
+	private byte[][] keys;
+	private int[] hashes;
+	private int[] footprints;
+	private int size;
+
+	private long lookups;
+	private long bytesSaved;
+
+	public AlbumStringTable(String column) {
+		if (column == null || column.isBlank()) {
+			throw new IllegalArgumentException("Column cannot be null or blank");
+		}
+
+		this.column = column;
+		this.strings = new String[64];
+		this.keys = new byte[64][];
+		this.hashes = new int[64];
+		this.footprints = new int[64];
+	}
+
+	public String intern(byte[] data, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > data.length) {
+			throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length) + ") is out of bounds for length " + data.length);
+		}
+
+		lookups++;
+		int hash = hash(data, offset, length);
+		int mask = strings.length - 1;
+		int slot = hash & mask;
+
+		while (strings[slot] != null) {
+			if (hashes[slot] == hash && Arrays.equals(keys[slot], 0, keys[slot].length, data, offset, offset + length)) {
+				// Every repeat would otherwise have been its own String with its own backing array.
+				bytesSaved += footprints[slot];
+				return strings[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		String value = new String(data, offset, length, StandardCharsets.UTF_8);
+		strings[slot] = value;
+		keys[slot] = Arrays.copyOfRange(data, offset, offset + length);
+		hashes[slot] = hash;
+		footprints[slot] = estimateFootprint(value);
+		size++;
+
+		if (size * 2 > strings.length) {
+			grow();
+		}
+
+		return value;
+	}
+
+	public String getColumn() {
+		return column;
+	}
+
+	// The number of distinct values seen so far.
+	public int size() {
+		return size;
+	}
+
+	public long getLookups() {
+		return lookups;
+	}
+
+	// An estimate of the heap that would have been retained by the duplicate Strings this table replaced.
+	public long getBytesSaved() {
+		return bytesSaved;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d values, %d distinct, ~%d bytes saved", column, lookups, size, bytesSaved);
+	}
+
+	private void grow() {
+		String[] oldStrings = strings;
+		byte[][] oldKeys = keys;
+		int[] oldHashes = hashes;
+		int[] oldFootprints = footprints;
+
+		int capacity = oldStrings.length * 2;
+		strings = new String[capacity];
+		keys = new byte[capacity][];
+		hashes = new int[capacity];
+		footprints = new int[capacity];
+
+		int mask = capacity - 1;
+		for (int i = 0; i < oldStrings.length; i++) {
+			if (oldStrings[i] == null) {
+				continue;
+			}
+
+			int slot = oldHashes[i] & mask;
+			while (strings[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			strings[slot] = oldStrings[i];
+			keys[slot] = oldKeys[i];
+			hashes[slot] = oldHashes[i];
+			footprints[slot] = oldFootprints[i];
+		}
+	}
+
+	private static int hash(byte[] data, int offset, int length) {
+		int hash = 1;
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + data[i];
+		}
+		// Spread the high bits into the low bits used to pick a slot.
+		return hash ^ (hash >>> 16);
+	}
+
+	// Assumes a 64-bit JVM with compressed references and compact strings:
+	// a 24 byte String object plus a byte[] with a 16 byte header, one or two bytes per char, padded to 8 bytes.
+	static int estimateFootprint(String value) {
+		int bytesPerChar = 1;
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) > 0xFF) {
+				bytesPerChar = 2;
+				break;
+			}
+		}
+
+		int array = 16 + value.length() * bytesPerChar;
+		return 24 + ((array + 7) & ~7);
+	}
+}
@@ -0,0 +1,248 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Follows an album CSV that is being appended to (for example by FileIOPart2.writeAlbumToFile).
+// The reader remembers which file it is reading and how far it has got.
+// Each poll only parses the bytes appended since the previous one and hands the new albums to every listener.
+// If the file shrinks or is replaced by a different file, the whole file is reloaded instead.
+// Only complete lines are consumed, so a row that is still being written is picked up by a later poll.
+// A row that cannot be parsed is skipped and counted, so one bad line does not stop the tail for good.
+public class AlbumTailReader implements Closeable {
+	public interface Listener {
+		// reloaded is true when albums is the complete contents of the file, replacing anything published before.
+		void albumsLoaded(Album[] albums, boolean reloaded);
+	}
+
+	private final Path path;
+	private final AlbumLoader loader = new AlbumLoader(false);
+	private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private Object fileIdentity;
+	private long offset;
+	private long skippedRows;
+	private RuntimeException lastSkipError;
+	private WatchService watchService;
+
+	public AlbumTailReader(String path) {
+		if (path == null || path.isBlank()) {
+			throw new IllegalArgumentException("Path cannot be null or blank");
+		}
+		this.path = Paths.get(path).toAbsolutePath();
+	}
+
+	public void addListener(Listener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener cannot be null");
+		}
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	// The byte offset just past the last complete line that has been published.
+	public synchronized long getOffset() {
+		return offset;
+	}
+
+	// The number of rows that could not be parsed and were skipped.
+	public synchronized long getSkippedRows() {
+		return skippedRows;
+	}
+
+	// Why the most recently skipped row could not be parsed, or null if no row has been skipped.
+	public synchronized RuntimeException getLastSkipError() {
+		return lastSkipError;
+	}
+
+	// Publishes any albums appended since the last poll and returns how many there were.
+	// Returns 0 if the file does not currently exist (for example, in the middle of a rotation).
+	public synchronized int poll() throws IOException {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			return 0;
+		}
+
+		Object identity = identityOf(attributes);
+		long size = attributes.size();
+
+		if (fileIdentity == null || !Objects.equals(identity, fileIdentity) || size < offset) {
+			fileIdentity = identity;
+			return reload(size);
+		}
+
+		if (size == offset) {
+			return 0;
+		}
+
+		byte[] data = read(offset, size);
+		int end = lastCompleteLine(data);
+		if (end == 0) {
+			return 0;
+		}
+
+		Album[] albums = parseRows(data, 0, end);
+		offset += end;
+		publish(albums, false);
+		return albums.length;
+	}
+
+	// Blocks, polling whenever the file system reports a change to the file, until close() is called.
+	public void watch() throws IOException, InterruptedException {
+		WatchService service;
+		synchronized (this) {
+			if (watchService != null) {
+				throw new IllegalStateException("Already watching " + path);
+			}
+			service = FileSystems.getDefault().newWatchService();
+			watchService = service;
+		}
+
+		try {
+			Path directory = path.getParent();
+			directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_DELETE);
+
+			poll();
+			while (true) {
+				WatchKey key = service.take();
+				boolean relevant = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					// OVERFLOW means events were dropped, so we cannot rule out a change to our file.
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW || path.getFileName().equals(event.context())) {
+						relevant = true;
+					}
+				}
+				if (relevant) {
+					poll();
+				}
+				if (!key.reset()) {
+					return;
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// close() was called- stop watching.
+		} finally {
+			// However watching ended, allow watch() to be called again.
+			synchronized (this) {
+				if (watchService == service) {
+					watchService = null;
+				}
+			}
+			service.close();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+			watchService = null;
+		}
+	}
+
+	private int reload(long size) throws IOException {
+		byte[] data = read(0, size);
+		int end = lastCompleteLine(data);
+		int headerEnd = AlbumLoader.lineEnd(data, 0, end);
+		if (headerEnd == end) {
+			// Not even a complete header yet.
+			offset = 0;
+			publish(new Album[0], true);
+			return 0;
+		}
+
+		Album[] albums = parseRows(data, AlbumLoader.nextLine(data, headerEnd, end), end);
+		offset = end;
+		publish(albums, true);
+		return albums.length;
+	}
+
+	// Parses the complete rows in [from, to), skipping any that are malformed.
+	private Album[] parseRows(byte[] data, int from, int to) {
+		try {
+			return loader.parse(data, from, to);
+		} catch (RuntimeException e) {
+			// Parse again one row at a time, to find the bad rows and keep the rest.
+			ArrayList<Album> albums = new ArrayList<>();
+			int lineStart = from;
+			while (lineStart < to) {
+				int lineEnd = AlbumLoader.lineEnd(data, lineStart, to);
+				try {
+					Collections.addAll(albums, loader.parse(data, lineStart, lineEnd));
+				} catch (RuntimeException rowError) {
+					skippedRows++;
+					lastSkipError = rowError;
+				}
+				lineStart = AlbumLoader.nextLine(data, lineEnd, to);
+			}
+			return albums.toArray(new Album[0]);
+		}
+	}
+
+	private byte[] read(long from, long to) throws IOException {
+		if (to - from > Integer.MAX_VALUE - 8) {
+			throw new IOException("Cannot read " + (to - from) + " bytes from " + path + " at once");
+		}
+
+		byte[] data = new byte[(int) (to - from)];
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, from + buffer.position()) < 0) {
+					break;
+				}
+			}
+		}
+
+		// The file may have been truncated between reading its size and reading its contents.
+		if (buffer.hasRemaining()) {
+			return Arrays.copyOf(data, buffer.position());
+		}
+		return data;
+	}
+
+	private void publish(Album[] albums, boolean reloaded) {
+		for (Listener listener : listeners) {
+			listener.albumsLoaded(albums, reloaded);
+		}
+	}
+
+	// Returns the number of leading bytes that make up complete, '\n'-terminated lines.
+	private static int lastCompleteLine(byte[] data) {
+		for (int i = data.length - 1; i >= 0; i--) {
+			if (data[i] == '\n') {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	// Some file systems have no file key, so fall back to the creation time to spot a replaced file.
+	private static Object identityOf(BasicFileAttributes attributes) {
+		Object key = attributes.fileKey();
+		return key != null ? key : attributes.creationTime();
+	}
+}
@@ -0,0 +1,228 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.sun.management.ThreadMXBean;
+
+// Measures what the patterns from Semantics and Generics really cost: nanoseconds and heap bytes allocated per operation.
+// Bytes are read from the JVM's per-thread allocation counter, so a pattern that shows 0 bytes/op after warm-up
+// had its allocation removed by the JIT (escape analysis and scalar replacement), and one that shows 16 bytes/op
+// allocates one small object per operation.
+//
+// Usage: java AllocationProfile            runs the suite twice, in child JVMs with -XX:+DoEscapeAnalysis and -XX:-DoEscapeAnalysis
+//        java AllocationProfile --here     runs it once in this JVM, with whatever flags it was started with
+public class AllocationProfile {
+	private static final int OPERATIONS = 10_000_000;
+	private static final int ARRAY_LENGTH = 1024;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int MEASURED_ROUNDS = 5;
+
+	// Below this, the few bytes per operation are noise from the measurement itself, not allocations in the loop.
+	private static final double ALLOCATION_THRESHOLD = 0.5;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length > 0 && args[0].equals("--here")) {
+			runSuite();
+			return;
+		}
+
+		// Each setting gets a fresh JVM, because escape analysis can only be switched on or off at startup.
+		for (String flag : new String[] { "-XX:+DoEscapeAnalysis", "-XX:-DoEscapeAnalysis" }) {
+			List<String> command = new ArrayList<>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			command.add(flag);
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(AllocationProfile.class.getName());
+			command.add("--here");
+
+			int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+			if (exitCode != 0) {
+				throw new IllegalStateException("Profiling run with " + flag + " failed with exit code " + exitCode);
+			}
+			System.out.println();
+		}
+	}
+
+	private static void runSuite() {
+		HotSpotDiagnosticMXBean diagnostics = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+		System.out.println("DoEscapeAnalysis = " + diagnostics.getVMOption("DoEscapeAnalysis").getValue());
+		printHeader();
+
+		profile("valueSemantics (int)", AllocationProfile::valueSemanticsLoop, OPERATIONS);
+		profile("referenceSemantics (new Wrapper)", AllocationProfile::referenceSemanticsLoop, OPERATIONS);
+		profile("javaIsAlwaysPassByValue (new Wrapper)", AllocationProfile::passByValueLoop, OPERATIONS);
+		profile("Container<Integer>", AllocationProfile::boxedContainerLoop, OPERATIONS);
+		profile("primitive int holder", AllocationProfile::primitiveHolderLoop, OPERATIONS);
+		profile("Wrapper[] (per element)", AllocationProfile::wrapperArrayLoop, OPERATIONS / ARRAY_LENGTH * ARRAY_LENGTH);
+		profile("int[] (per element)", AllocationProfile::intArrayLoop, OPERATIONS / ARRAY_LENGTH * ARRAY_LENGTH);
+	}
+
+	private static long valueSemanticsLoop() {
+		long sum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			int x = i;
+			sum += valueSemantics(x) + x;
+		}
+		return sum;
+	}
+
+	private static long referenceSemanticsLoop() {
+		long sum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			Wrapper w = new Wrapper(i);
+			referenceSemantics(w);
+			sum += w.x;
+		}
+		return sum;
+	}
+
+	private static long passByValueLoop() {
+		long sum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			Wrapper w = new Wrapper(i);
+			javaIsAlwaysPassByValue(w);
+			sum += w.x;
+		}
+		return sum;
+	}
+
+	// Values from 0 to OPERATIONS are mostly outside the Integer cache (-128 to 127), so boxing them allocates.
+	private static long boxedContainerLoop() {
+		long sum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			Container<Integer> container = new Container<>(i);
+			container.setValue(container.getValue() + 1);
+			sum += container.getValue();
+		}
+		return sum;
+	}
+
+	private static long primitiveHolderLoop() {
+		long sum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			IntHolder holder = new IntHolder(i);
+			holder.setValue(holder.getValue() + 1);
+			sum += holder.getValue();
+		}
+		return sum;
+	}
+
+	// Arrays this large are never scalar-replaced, so both of these allocate. What differs is how much.
+	private static long wrapperArrayLoop() {
+		long sum = 0;
+		for (int round = 0; round < OPERATIONS / ARRAY_LENGTH; round++) {
+			Wrapper[] wrappers = new Wrapper[ARRAY_LENGTH];
+			for (int i = 0; i < ARRAY_LENGTH; i++) {
+				wrappers[i] = new Wrapper(round + i);
+			}
+			for (Wrapper w : wrappers) {
+				sum += w.x;
+			}
+		}
+		return sum;
+	}
+
+	private static long intArrayLoop() {
+		long sum = 0;
+		for (int round = 0; round < OPERATIONS / ARRAY_LENGTH; round++) {
+			int[] values = new int[ARRAY_LENGTH];
+			for (int i = 0; i < ARRAY_LENGTH; i++) {
+				values[i] = round + i;
+			}
+			for (int value : values) {
+				sum += value;
+			}
+		}
+		return sum;
+	}
+
+	// The same three methods as in Semantics, without the printing.
+	private static int valueSemantics(int x) {
+		x = 99;
+		return x;
+	}
+
+	private static void referenceSemantics(Wrapper w) {
+		w.x = 99;
+	}
+
+	private static void javaIsAlwaysPassByValue(Wrapper w) {
+		w = new Wrapper(99);
+		w.x++;
+	}
+
+	static void printHeader() {
+		System.out.printf("%-40s %10s %10s   %s%n", "pattern", "ns/op", "bytes/op", "verdict");
+	}
+
+	// Runs the benchmark until the JIT has compiled it, then reports the average of the measured rounds.
+	// Also used by other benchmarks that report bytes per operation, such as HolderPoolBenchmark.
+	static void profile(String name, Benchmark benchmark, long operations) {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		long checksum = 0;
+		for (int round = 0; round < WARMUP_ROUNDS; round++) {
+			checksum += benchmark.run();
+		}
+
+		long allocated = 0;
+		long elapsed = 0;
+		for (int round = 0; round < MEASURED_ROUNDS; round++) {
+			long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+			long start = System.nanoTime();
+			checksum += benchmark.run();
+			elapsed += System.nanoTime() - start;
+			allocated += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+		}
+
+		double nanosPerOp = (double) elapsed / MEASURED_ROUNDS / operations;
+		double bytesPerOp = (double) allocated / MEASURED_ROUNDS / operations;
+		String verdict = bytesPerOp < ALLOCATION_THRESHOLD ? "no heap allocation (scalar-replaced or none)" : "allocates";
+		// Printing the checksum keeps the JIT from discarding the benchmark's work as unused.
+		System.out.printf("%-40s %10.2f %10.2f   %s (checksum %d)%n", name, nanosPerOp, bytesPerOp, verdict, checksum);
+	}
+
+	// Returns a checksum of its work, so the JIT cannot throw the work away.
+	interface Benchmark {
+		long run();
+	}
+
+	// The Container<T> from Generics. Generics.java deliberately contains code that does not compile
+	// (it shows why primitive arrays cannot be passed as T[]), so its Container cannot be used from here.
+	private static class Container<T> {
+		private T value;
+
+		Container(T value) {
+			this.value = value;
+		}
+
+		T getValue() {
+			return value;
+		}
+
+		void setValue(T value) {
+			this.value = value;
+		}
+	}
+
+	// A non-generic Container for int: the value is stored directly instead of as a reference to an Integer.
+	private static class IntHolder {
+		private int value;
+
+		IntHolder(int value) {
+			this.value = value;
+		}
+
+		int getValue() {
+			return value;
+		}
+
+		void setValue(int value) {
+			this.value = value;
+		}
+	}
+}
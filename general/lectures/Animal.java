@@ -1,4 +1,7 @@
 public abstract class Animal {
+	// Where speak(), bathTime() and the other behaviors print. The console by default.
+	private static volatile AnimalOutput output = AnimalOutput.CONSOLE;
+
 	protected String name;
 	protected int age;
 
@@ -7,10 +10,21 @@ public abstract class Animal {
 		setAge(age);
 	}
 
+	public static AnimalOutput output() {
+		return output;
+	}
+
+	public static void setOutput(AnimalOutput output) {
+		if (output == null) {
+			throw new IllegalArgumentException("Output cannot be null");
+		}
+		Animal.output = output;
+	}
+
 	public abstract void speak();
 
 	public void bathTime() {
-		System.out.printf("%s took a bath%n", name);
+		output().printf("%s took a bath%n", name);
 	}
 
 	public final String getName() {
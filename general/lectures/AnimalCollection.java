@@ -0,0 +1,270 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// A collection of animals that keeps each class of animal in its own array. Animals are grouped by their exact class,
+// so a subclass of Dog is not put with the Dogs: cats, dogs, birds and platypuses have named groups,
+// and every other class gets a group of its own.
+//
+// Calling speak() on every element of a mixed Animal[] means one call site sees four or more classes.
+// The JIT then gives up on inlining it and makes a full virtual call every time (a "megamorphic" call site).
+// Looping over one group at a time means each call site only ever sees one class, so the JIT can inline it.
+// The loops over the other classes' groups do share a call site, so only the named groups are guaranteed this.
+// The groups are also typed: dogs() returns Dogs, so playFetch() needs no instanceof check or cast.
+//
+// Iterating the collection itself still visits the animals in the order they were added.
+public class AnimalCollection implements Iterable<Animal> {
+	private static final int CATS = 0;
+	private static final int DOGS = 1;
+	private static final int BIRDS = 2;
+	private static final int PLATYPUSES = 3;
+	private static final int FIRST_OTHER = 4;
+
+	// The insertion order is stored as one long per animal: the group in the top half, the index in the group below.
+	private static final int GROUP_SHIFT = 32;
+	private static final long INDEX_MASK = (1L << GROUP_SHIFT) - 1;
+
+	private final AnimalGroup<Cat> cats = new AnimalGroup<>();
+	private final AnimalGroup<Dog> dogs = new AnimalGroup<>();
+	private final AnimalGroup<Bird> birds = new AnimalGroup<>();
+	private final AnimalGroup<Platypus> platypuses = new AnimalGroup<>();
+	// One group per other class, numbered from FIRST_OTHER in the order the classes were first added.
+	private final List<AnimalGroup<Animal>> others = new ArrayList<>();
+	private final HashMap<Class<?>, Integer> otherGroups = new HashMap<>();
+
+	private long[] order = new long[16];
+	private int size;
+
+	public AnimalCollection() {
+	}
+
+	public AnimalCollection(Animal... animals) {
+		for (Animal animal : animals) {
+			add(animal);
+		}
+	}
+
+	public final void add(Animal animal) {
+		if (animal == null) {
+			throw new IllegalArgumentException("Animal cannot be null");
+		}
+
+		Class<?> type = animal.getClass();
+		int group;
+		int index;
+		if (type == Cat.class) {
+			group = CATS;
+			index = cats.add((Cat) animal);
+		} else if (type == Dog.class) {
+			group = DOGS;
+			index = dogs.add((Dog) animal);
+		} else if (type == Bird.class) {
+			group = BIRDS;
+			index = birds.add((Bird) animal);
+		} else if (type == Platypus.class) {
+			group = PLATYPUSES;
+			index = platypuses.add((Platypus) animal);
+		} else {
+			group = otherGroups.computeIfAbsent(type, key -> {
+				others.add(new AnimalGroup<>());
+				return FIRST_OTHER + others.size() - 1;
+			});
+			index = others.get(group - FIRST_OTHER).add(animal);
+		}
+
+		if (size == order.length) {
+			order = Arrays.copyOf(order, size * 2);
+		}
+		order[size++] = (long) group << GROUP_SHIFT | index;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// Returns the animal that was added at the given position.
+	public Animal get(int position) {
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("Position " + position + " is out of bounds for size " + size);
+		}
+		return groupOf((int) (order[position] >>> GROUP_SHIFT)).get((int) (order[position] & INDEX_MASK));
+	}
+
+	public AnimalGroup<Cat> cats() {
+		return cats;
+	}
+
+	public AnimalGroup<Dog> dogs() {
+		return dogs;
+	}
+
+	public AnimalGroup<Bird> birds() {
+		return birds;
+	}
+
+	public AnimalGroup<Platypus> platypuses() {
+		return platypuses;
+	}
+
+	// The groups of every other class, such as a subclass added later, one group per class.
+	public List<AnimalGroup<Animal>> others() {
+		return Collections.unmodifiableList(others);
+	}
+
+	// Makes every animal speak, one group at a time. Each loop is written out separately on purpose:
+	// a single loop shared by all groups would be one call site seeing every class again.
+	public void speakAll() {
+		for (int i = 0; i < cats.size(); i++) {
+			cats.get(i).speak();
+		}
+		for (int i = 0; i < dogs.size(); i++) {
+			dogs.get(i).speak();
+		}
+		for (int i = 0; i < birds.size(); i++) {
+			birds.get(i).speak();
+		}
+		for (int i = 0; i < platypuses.size(); i++) {
+			platypuses.get(i).speak();
+		}
+		for (AnimalGroup<Animal> group : others) {
+			for (int i = 0; i < group.size(); i++) {
+				group.get(i).speak();
+			}
+		}
+	}
+
+	public void bathTimeAll() {
+		for (int i = 0; i < cats.size(); i++) {
+			cats.get(i).bathTime();
+		}
+		for (int i = 0; i < dogs.size(); i++) {
+			dogs.get(i).bathTime();
+		}
+		for (int i = 0; i < birds.size(); i++) {
+			birds.get(i).bathTime();
+		}
+		for (int i = 0; i < platypuses.size(); i++) {
+			platypuses.get(i).bathTime();
+		}
+		for (AnimalGroup<Animal> group : others) {
+			for (int i = 0; i < group.size(); i++) {
+				group.get(i).bathTime();
+			}
+		}
+	}
+
+	// Subclasses of Dog have groups of their own, and play fetch too.
+	public void playFetchAll() {
+		for (int i = 0; i < dogs.size(); i++) {
+			dogs.get(i).playFetch();
+		}
+		for (AnimalGroup<Animal> group : others) {
+			if (group.size() > 0 && group.get(0) instanceof Dog) {
+				for (int i = 0; i < group.size(); i++) {
+					((Dog) group.get(i)).playFetch();
+				}
+			}
+		}
+	}
+
+	// Birds and platypuses always lay eggs. Other animals only do if their class implements EggLayer.
+	public void layEggAll() {
+		for (int i = 0; i < birds.size(); i++) {
+			birds.get(i).layEgg();
+		}
+		for (int i = 0; i < platypuses.size(); i++) {
+			platypuses.get(i).layEgg();
+		}
+		// Every animal in a group has the same class, so checking the first one answers for the whole group.
+		for (AnimalGroup<Animal> group : others) {
+			if (group.size() > 0 && group.get(0) instanceof EggLayer) {
+				for (int i = 0; i < group.size(); i++) {
+					((EggLayer) group.get(i)).layEgg();
+				}
+			}
+		}
+	}
+
+	// Visits every animal in the order they were added.
+	@Override
+	public void forEach(Consumer<? super Animal> action) {
+		for (int i = 0; i < size; i++) {
+			action.accept(groupOf((int) (order[i] >>> GROUP_SHIFT)).get((int) (order[i] & INDEX_MASK)));
+		}
+	}
+
+	@Override
+	public Iterator<Animal> iterator() {
+		return new Iterator<Animal>() {
+			private int position;
+
+			@Override
+			public boolean hasNext() {
+				return position < size;
+			}
+
+			@Override
+			public Animal next() {
+				if (position >= size) {
+					throw new NoSuchElementException();
+				}
+				return get(position++);
+			}
+		};
+	}
+
+	private AnimalGroup<?> groupOf(int group) {
+		switch (group) {
+			case CATS:
+				return cats;
+			case DOGS:
+				return dogs;
+			case BIRDS:
+				return birds;
+			case PLATYPUSES:
+				return platypuses;
+			default:
+				return others.get(group - FIRST_OTHER);
+		}
+	}
+
+	// The animals of one class, stored in a contiguous array in the order they were added.
+	public static final class AnimalGroup<T extends Animal> {
+		private Animal[] animals = new Animal[16];
+		private int size;
+
+		private AnimalGroup() {
+		}
+
+		public int size() {
+			return size;
+		}
+
+		@SuppressWarnings("unchecked")
+		public T get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + size);
+			}
+			return (T) animals[index];
+		}
+
+		public void forEach(Consumer<? super T> action) {
+			for (int i = 0; i < size; i++) {
+				action.accept(get(i));
+			}
+		}
+
+		private int add(T animal) {
+			if (size == animals.length) {
+				animals = Arrays.copyOf(animals, size * 2);
+			}
+			animals[size] = animal;
+			return size++;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+import java.util.Random;
+
+// Compares the loop from Polymorphism.main over a mixed Animal[] (speak, bathTime, and playFetch after an instanceof check)
+// with the same work done one group at a time through AnimalCollection.
+// Animal output goes to AnimalOutput.NONE during the measurement, so what is left is mostly the cost of the calls themselves.
+public class AnimalCollectionBenchmark {
+	private static final int ANIMALS = 1_000_000;
+	private static final int ROUNDS = 10;
+
+	public static void main(String[] args) {
+		Random random = new Random(42);
+		Animal[] mixed = new Animal[ANIMALS];
+		for (int i = 0; i < ANIMALS; i++) {
+			switch (random.nextInt(4)) {
+				case 0:
+					mixed[i] = new Cat("Cat " + i, random.nextInt(20), "Black");
+					break;
+				case 1:
+					mixed[i] = new Dog("Dog " + i, random.nextInt(20), "Brown");
+					break;
+				case 2:
+					mixed[i] = new Bird("Bird " + i, random.nextInt(20));
+					break;
+				default:
+					mixed[i] = new Platypus("Platypus " + i, random.nextInt(20));
+					break;
+			}
+		}
+		AnimalCollection collection = new AnimalCollection(mixed);
+
+		int position = 0;
+		for (Animal animal : collection) {
+			if (animal != mixed[position++]) {
+				throw new IllegalStateException("AnimalCollection did not keep insertion order at position " + (position - 1));
+			}
+		}
+
+		Animal.setOutput(AnimalOutput.NONE);
+		try {
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				mixedLoop(mixed);
+				long middle = System.nanoTime();
+				collection.speakAll();
+				collection.bathTimeAll();
+				collection.playFetchAll();
+				long end = System.nanoTime();
+
+				System.out.printf("Round %d: Animal[] %d ms, AnimalCollection %d ms%n", round + 1, (middle - start) / 1_000_000,
+						(end - middle) / 1_000_000);
+			}
+		} finally {
+			Animal.setOutput(AnimalOutput.CONSOLE);
+		}
+	}
+
+	private static void mixedLoop(Animal[] animals) {
+		for (int i = 0; i < animals.length; i++) {
+			animals[i].speak();
+			animals[i].bathTime();
+			if (animals[i] instanceof Dog) {
+				((Dog) animals[i]).playFetch();
+			}
+		}
+	}
+}
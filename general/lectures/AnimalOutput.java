@@ -0,0 +1,32 @@
+// Where the Animal hierarchy prints what its animals do: "Woof!", "Koro took a bath", and so on.
+// Set it for all animals with Animal.setOutput. The choices are:
+// - CONSOLE, the default, prints to System.out exactly as before.
+// - AsyncAnimalOutput queues lines and writes them on a background thread, so animals never wait on console I/O.
+// - NONE and CountingAnimalOutput print nothing, for benchmarks and tests.
+public interface AnimalOutput {
+	AnimalOutput CONSOLE = new AnimalOutput() {
+		@Override
+		public void println(String line) {
+			System.out.println(line);
+		}
+
+		@Override
+		public void printf(String format, Object... args) {
+			System.out.printf(format, args);
+		}
+	};
+
+	AnimalOutput NONE = new AnimalOutput() {
+		@Override
+		public void println(String line) {
+		}
+
+		@Override
+		public void printf(String format, Object... args) {
+		}
+	};
+
+	void println(String line);
+
+	void printf(String format, Object... args);
+}
@@ -0,0 +1,345 @@
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Runs a shelter simulation in which every animal repeatedly speaks, takes a bath and, for dogs, plays fetch,
+// each on its own schedule. It scales to millions of animals because an animal is not a thread:
+// it is a few small event objects in a timing wheel.
+//
+// The timing wheel is an array of 4096 slots, one per millisecond tick, used round and round like a clock face.
+// An event due at tick t waits in slot t % 4096, so scheduling is O(1) no matter how many events there are.
+// Events due more than one turn ahead simply stay in their slot until their tick comes around.
+//
+// There are two modes:
+// - Deterministic: runFor() advances a virtual clock one tick at a time and runs every due event on the calling
+//   thread, in the order they were scheduled. Nothing waits for real time, and the same schedule always prints
+//   the same output in the same order, which makes it the mode for tests.
+// - Concurrent: runFor() follows the wall clock and hands due events to virtual threads (Java 21 and later),
+//   or to a work-stealing ForkJoinPool on older runtimes.
+//
+// In both modes, the wheel is only touched by the thread in runFor(). Events scheduled from other threads
+// and events that finished running elsewhere are passed to it through queues.
+// A behavior that throws is counted in the metrics and stays scheduled; it does not stop the simulation.
+public class AnimalSimulation implements AutoCloseable {
+	private static final int WHEEL_SIZE = 1 << 12;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+	private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	public enum Behavior {
+		SPEAK,
+		BATH_TIME,
+		PLAY_FETCH;
+
+		void perform(Animal animal) {
+			switch (this) {
+				case SPEAK:
+					animal.speak();
+					break;
+				case BATH_TIME:
+					animal.bathTime();
+					break;
+				default:
+					((Dog) animal).playFetch();
+					break;
+			}
+		}
+	}
+
+	private final boolean deterministic;
+	private final Random random;
+	private final ExecutorService executor;
+
+	private final Event[] heads = new Event[WHEEL_SIZE];
+	private final Event[] tails = new Event[WHEEL_SIZE];
+	private long currentTick;
+	private volatile long queued;
+
+	private final ConcurrentLinkedQueue<Event> incoming = new ConcurrentLinkedQueue<>();
+	private final ConcurrentLinkedQueue<Event> finished = new ConcurrentLinkedQueue<>();
+
+	private final LongAdder executed = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final AtomicLong inFlight = new AtomicLong();
+	private final LongAdder totalLagNanos = new LongAdder();
+	private final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+	private long runningNanos;
+	// When tick 0 would have started, so that tick t starts at startNanos + t * TICK_NANOS.
+	private volatile long startNanos;
+
+	public AnimalSimulation(boolean deterministic) {
+		this(deterministic, 42);
+	}
+
+	// The seed decides how addAnimal() spreads the first events of each animal over the first period.
+	public AnimalSimulation(boolean deterministic, long seed) {
+		this.deterministic = deterministic;
+		this.random = new Random(seed);
+		this.executor = deterministic ? null : newExecutor();
+	}
+
+	// Schedules the usual routine for an animal: speak every second, a bath every ten seconds,
+	// and for dogs, fetch every three seconds. Each behavior starts at a random point in its first period
+	// so the animals do not all act in the same tick.
+	public void addAnimal(Animal animal) {
+		schedule(animal, Behavior.SPEAK, 1000, nextDelay(1000));
+		schedule(animal, Behavior.BATH_TIME, 10_000, nextDelay(10_000));
+		if (animal instanceof Dog) {
+			schedule(animal, Behavior.PLAY_FETCH, 3000, nextDelay(3000));
+		}
+	}
+
+	// Runs the behavior every periodMillis, starting initialDelayMillis from now. May be called from any thread.
+	public void schedule(Animal animal, Behavior behavior, long periodMillis, long initialDelayMillis) {
+		if (animal == null || behavior == null) {
+			throw new IllegalArgumentException("Animal and behavior cannot be null");
+		}
+		if (behavior == Behavior.PLAY_FETCH && !(animal instanceof Dog)) {
+			throw new IllegalArgumentException("Only dogs can play fetch");
+		}
+		if (periodMillis < 1 || initialDelayMillis < 0) {
+			throw new IllegalArgumentException("Period must be at least 1 ms, and the initial delay cannot be negative");
+		}
+		incoming.add(new Event(animal, behavior, periodMillis, initialDelayMillis));
+	}
+
+	// Runs the simulation for the given number of milliseconds, of virtual time in deterministic mode
+	// and of wall-clock time in concurrent mode. Can be called repeatedly to continue where it left off.
+	public void runFor(long millis) {
+		if (millis < 0) {
+			throw new IllegalArgumentException("Duration cannot be negative");
+		}
+
+		// Anchor the clock again on every call, so a pause between calls is skipped instead of being caught up on.
+		long runStart = System.nanoTime();
+		startNanos = runStart - currentTick * TICK_NANOS;
+		long endTick = currentTick + millis;
+		while (currentTick < endTick) {
+			if (!deterministic) {
+				// Sleep until this tick starts. If we are behind, catch up without sleeping.
+				long wait = startNanos + currentTick * TICK_NANOS - System.nanoTime();
+				if (wait > 0) {
+					LockSupport.parkNanos(wait);
+				}
+			}
+			drain(incoming, true);
+			drain(finished, false);
+			runTick();
+			currentTick++;
+		}
+		runningNanos += System.nanoTime() - runStart;
+	}
+
+	// The current simulation time in milliseconds since the start.
+	public long getTime() {
+		return currentTick;
+	}
+
+	public SimulationMetrics getMetrics() {
+		long count = executed.sum();
+		return new SimulationMetrics(count, failures.sum(), runningNanos == 0 ? 0 : count * 1e9 / runningNanos, queued,
+				inFlight.get(), count == 0 ? 0 : totalLagNanos.sum() / 1e6 / count, maxLagNanos.get() / 1e6);
+	}
+
+	// Waits for events that are still running in concurrent mode, then stops the executor.
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// New events get their first deadline relative to now. Finished events move on by one period.
+	private void drain(ConcurrentLinkedQueue<Event> queue, boolean isNew) {
+		Event event;
+		while ((event = queue.poll()) != null) {
+			event.deadline = isNew ? currentTick + event.deadline : event.deadline + event.period;
+			insert(event);
+		}
+	}
+
+	private void insert(Event event) {
+		// An event that is already late goes in the current slot, not in a slot that has already been passed.
+		int slot = (int) (Math.max(event.deadline, currentTick) & WHEEL_MASK);
+		event.next = null;
+		if (heads[slot] == null) {
+			heads[slot] = event;
+		} else {
+			tails[slot].next = event;
+		}
+		tails[slot] = event;
+		queued++;
+	}
+
+	private void runTick() {
+		int slot = (int) (currentTick & WHEEL_MASK);
+
+		// First unlink every due event, keeping the ones due in a later turn of the wheel in place.
+		Event due = null;
+		Event dueTail = null;
+		Event kept = null;
+		Event keptTail = null;
+		for (Event event = heads[slot]; event != null;) {
+			Event next = event.next;
+			event.next = null;
+			if (event.deadline <= currentTick) {
+				if (due == null) {
+					due = event;
+				} else {
+					dueTail.next = event;
+				}
+				dueTail = event;
+				queued--;
+			} else {
+				if (kept == null) {
+					kept = event;
+				} else {
+					keptTail.next = event;
+				}
+				keptTail = event;
+			}
+			event = next;
+		}
+		heads[slot] = kept;
+		tails[slot] = keptTail;
+
+		while (due != null) {
+			Event event = due;
+			due = event.next;
+			event.next = null;
+			if (deterministic) {
+				try {
+					event.behavior.perform(event.animal);
+					executed.increment();
+				} catch (RuntimeException e) {
+					failures.increment();
+				} finally {
+					event.deadline += event.period;
+					insert(event);
+				}
+			} else {
+				inFlight.incrementAndGet();
+				executor.execute(() -> run(event));
+			}
+		}
+	}
+
+	// Runs one event in concurrent mode and records how long after its deadline it started.
+	private void run(Event event) {
+		try {
+			long lag = Math.max(0, System.nanoTime() - (startNanos + event.deadline * TICK_NANOS));
+			totalLagNanos.add(lag);
+			maxLagNanos.accumulate(lag);
+			event.behavior.perform(event.animal);
+			executed.increment();
+		} catch (RuntimeException e) {
+			failures.increment();
+		} finally {
+			inFlight.decrementAndGet();
+			finished.add(event);
+		}
+	}
+
+	private long nextDelay(long period) {
+		synchronized (random) {
+			return (long) (random.nextDouble() * period);
+		}
+	}
+
+	// Virtual threads need Java 21. On older runtimes, fall back to a work-stealing pool with one thread per core.
+	private static ExecutorService newExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newWorkStealingPool();
+		}
+	}
+
+	// One periodic behavior of one animal. Until it is first inserted, deadline holds the initial delay.
+	private static final class Event {
+		final Animal animal;
+		final Behavior behavior;
+		final long period;
+		long deadline;
+		Event next;
+
+		Event(Animal animal, Behavior behavior, long period, long initialDelay) {
+			this.animal = animal;
+			this.behavior = behavior;
+			this.period = period;
+			this.deadline = initialDelay;
+		}
+	}
+}
+
+class SimulationMetrics {
+	private final long eventsExecuted;
+	private final long failures;
+	private final double eventsPerSecond;
+	private final long queueDepth;
+	private final long inFlight;
+	private final double averageLagMillis;
+	private final double maxLagMillis;
+
+	public SimulationMetrics(long eventsExecuted, long failures, double eventsPerSecond, long queueDepth, long inFlight,
+			double averageLagMillis, double maxLagMillis) {
+		this.eventsExecuted = eventsExecuted;
+		this.failures = failures;
+		this.eventsPerSecond = eventsPerSecond;
+		this.queueDepth = queueDepth;
+		this.inFlight = inFlight;
+		this.averageLagMillis = averageLagMillis;
+		this.maxLagMillis = maxLagMillis;
+	}
+
+	public long getEventsExecuted() {
+		return eventsExecuted;
+	}
+
+	// Events whose behavior threw an exception. They are not counted as executed, but stay scheduled.
+	public long getFailures() {
+		return failures;
+	}
+
+	// Events per second of wall-clock time spent in runFor().
+	public double getEventsPerSecond() {
+		return eventsPerSecond;
+	}
+
+	// Events waiting in the timing wheel for their next deadline.
+	public long getQueueDepth() {
+		return queueDepth;
+	}
+
+	// Events handed to the executor that have not finished yet. Always 0 in deterministic mode.
+	public long getInFlight() {
+		return inFlight;
+	}
+
+	// How long after their deadline events started running. Always 0 in deterministic mode, where time is virtual.
+	public double getAverageLagMillis() {
+		return averageLagMillis;
+	}
+
+	public double getMaxLagMillis() {
+		return maxLagMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%,d events (%,.0f/s), %,d failed, %,d queued, %,d in flight, lag %.2f ms average, %.2f ms max",
+				eventsExecuted, eventsPerSecond, failures, queueDepth, inFlight, averageLagMillis, maxLagMillis);
+	}
+}
@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs AnimalSimulation with many animals in both modes and prints its metrics.
+// Animal output is counted instead of printed, so the numbers show the cost of scheduling, not of the console.
+// It first checks that two deterministic runs of the same small shelter print exactly the same lines in the same order.
+public class AnimalSimulationBenchmark {
+	private static final int ANIMALS = 200_000;
+	private static final long VIRTUAL_MILLIS = 60_000;
+	private static final long WALL_MILLIS = 5_000;
+
+	public static void main(String[] args) {
+		if (!recordSmallShelter().equals(recordSmallShelter())) {
+			throw new IllegalStateException("Two deterministic runs printed different output");
+		}
+		System.out.println("Deterministic runs match");
+
+		CountingAnimalOutput output = new CountingAnimalOutput();
+		Animal.setOutput(output);
+		try {
+			try (AnimalSimulation simulation = new AnimalSimulation(true)) {
+				addShelter(simulation, ANIMALS);
+				long start = System.nanoTime();
+				simulation.runFor(VIRTUAL_MILLIS);
+				System.out.printf("Deterministic, %,d animals, %d s of virtual time in %d ms: %s%n", ANIMALS, VIRTUAL_MILLIS / 1000,
+						(System.nanoTime() - start) / 1_000_000, simulation.getMetrics());
+			}
+
+			try (AnimalSimulation simulation = new AnimalSimulation(false)) {
+				addShelter(simulation, ANIMALS);
+				simulation.runFor(WALL_MILLIS);
+				System.out.printf("Concurrent, %,d animals, %d s of wall-clock time: %s%n", ANIMALS, WALL_MILLIS / 1000, simulation.getMetrics());
+			}
+			System.out.printf("%,d lines of animal output counted%n", output.getLines());
+		} finally {
+			Animal.setOutput(AnimalOutput.CONSOLE);
+		}
+	}
+
+	private static List<String> recordSmallShelter() {
+		List<String> lines = new ArrayList<>();
+		Animal.setOutput(new AnimalOutput() {
+			@Override
+			public void println(String line) {
+				lines.add(line);
+			}
+
+			@Override
+			public void printf(String format, Object... args) {
+				lines.add(String.format(format, args));
+			}
+		});
+		try (AnimalSimulation simulation = new AnimalSimulation(true, 7)) {
+			addShelter(simulation, 50);
+			simulation.runFor(20_000);
+		} finally {
+			Animal.setOutput(AnimalOutput.CONSOLE);
+		}
+		return lines;
+	}
+
+	private static void addShelter(AnimalSimulation simulation, int animals) {
+		for (int i = 0; i < animals; i++) {
+			switch (i % 4) {
+				case 0:
+					simulation.addAnimal(new Cat("Cat " + i, i % 20, "Black"));
+					break;
+				case 1:
+					simulation.addAnimal(new Dog("Dog " + i, i % 20, "Brown"));
+					break;
+				case 2:
+					simulation.addAnimal(new Bird("Bird " + i, i % 20));
+					break;
+				default:
+					simulation.addAnimal(new Platypus("Platypus " + i, i % 20));
+					break;
+			}
+		}
+	}
+}
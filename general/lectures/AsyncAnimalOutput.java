@@ -0,0 +1,224 @@
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// An AnimalOutput that never makes the printing thread wait on I/O, unless the queue fills up.
+// Printing threads format their line and put it into a ring buffer. One background writer thread takes lines out
+// in order, encodes them into a large buffer, and writes the buffer to a channel when it fills up
+// or when there is nothing else to do.
+//
+// The ring buffer has many producers and one consumer, and needs no locks: a producer claims the next slot
+// by incrementing a shared counter, and only the writer thread ever empties slots. A claimed slot is always filled,
+// even after a write has failed, because the writer waits for each slot in turn.
+// When there is nothing to write, the writer sleeps until a producer wakes it.
+// Lines from one thread stay in order. Lines from different threads are interleaved in the order they claimed slots.
+//
+// Lines printed while close() is running may be lost. The channel belongs to the caller and is not closed.
+public class AsyncAnimalOutput implements AnimalOutput, Closeable {
+	private static final int DEFAULT_CAPACITY = 1 << 16;
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+	private static final int IDLE_SPINS = 100;
+	private static final long FLUSH_POLL_NANOS = 10_000;
+
+	private final WritableByteChannel channel;
+	private final AtomicReferenceArray<String> slots;
+	private final int mask;
+	private final ByteBuffer buffer;
+	private final Thread writer;
+
+	// Sequence numbers: tail is the next slot a producer will claim, head the next slot the writer will take.
+	// Every line before flushed has reached the channel.
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head;
+	private volatile long flushed;
+	private volatile boolean closed;
+	private volatile boolean sleeping;
+	private volatile IOException failure;
+
+	// Writes to standard output through its file descriptor, bypassing System.out and its lock.
+	public AsyncAnimalOutput() {
+		this(new FileOutputStream(FileDescriptor.out).getChannel(), DEFAULT_CAPACITY, DEFAULT_BUFFER_SIZE);
+	}
+
+	// The capacity is the number of lines that can be queued and is rounded up to a power of two.
+	public AsyncAnimalOutput(WritableByteChannel channel, int capacity, int bufferSize) {
+		if (channel == null) {
+			throw new IllegalArgumentException("Channel cannot be null");
+		}
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+		}
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be positive");
+		}
+
+		int slotCount = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+		this.channel = channel;
+		this.slots = new AtomicReferenceArray<>(slotCount);
+		this.mask = slotCount - 1;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.writer = new Thread(this::drain, "animal-output-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public void println(String line) {
+		enqueue(line + System.lineSeparator());
+	}
+
+	@Override
+	public void printf(String format, Object... args) {
+		enqueue(String.format(format, args));
+	}
+
+	// Waits until every line printed before this call has been written to the channel.
+	public void flush() throws IOException {
+		long target = tail.get();
+		LockSupport.unpark(writer);
+		while (flushed < target) {
+			checkFailure();
+			if (!writer.isAlive()) {
+				throw new IOException("Writer thread stopped before flushing");
+			}
+			LockSupport.parkNanos(FLUSH_POLL_NANOS);
+		}
+		checkFailure();
+	}
+
+	// The number of lines waiting to be written.
+	public long getQueued() {
+		return tail.get() - head;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for queued lines to be written", e);
+		}
+		checkFailure();
+	}
+
+	private void enqueue(String text) {
+		if (closed) {
+			throw new IllegalStateException("Output is closed");
+		}
+		if (failure != null) {
+			throw new UncheckedIOException(failure);
+		}
+
+		long sequence = tail.getAndIncrement();
+		// If the writer is a whole ring behind, wait for it to free this slot. Do not give up on a failure:
+		// the writer would wait forever for this slot, and it keeps taking (and dropping) lines after a failure anyway.
+		while (sequence - head >= slots.length()) {
+			if (!writer.isAlive()) {
+				throw new IllegalStateException("Writer thread stopped");
+			}
+			Thread.onSpinWait();
+			Thread.yield();
+		}
+		// A volatile store, so that either the writer sees the line when it looks once more before sleeping,
+		// or we see that it is sleeping and wake it.
+		slots.set((int) (sequence & mask), text);
+		if (sleeping) {
+			LockSupport.unpark(writer);
+		}
+		if (failure != null) {
+			throw new UncheckedIOException(failure);
+		}
+	}
+
+	private void drain() {
+		int idle = 0;
+		while (true) {
+			long sequence = head;
+			int slot = (int) (sequence & mask);
+			String text = slots.get(slot);
+			if (text != null) {
+				// Empty the slot before moving head past it, so a producer waiting for the slot never sees the old line.
+				slots.lazySet(slot, null);
+				head = sequence + 1;
+				write(text, sequence);
+				idle = 0;
+				continue;
+			}
+
+			// Nothing to take, either because the queue is empty or because a producer has claimed the slot
+			// but not filled it yet. Either way, this is a good moment to write out what we have.
+			writeBuffer();
+			if (failure == null) {
+				flushed = sequence;
+			}
+			if (closed && sequence == tail.get()) {
+				return;
+			}
+			if (++idle < IDLE_SPINS) {
+				Thread.onSpinWait();
+			} else {
+				// Sleep until enqueue(), flush() or close() wakes us up.
+				sleeping = true;
+				if (slots.get(slot) == null && !closed) {
+					LockSupport.park(this);
+				}
+				sleeping = false;
+			}
+		}
+	}
+
+	private void write(String text, long sequence) {
+		if (failure != null) {
+			return;
+		}
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > buffer.remaining()) {
+			writeBuffer();
+			flushed = sequence;
+		}
+		if (bytes.length > buffer.capacity()) {
+			writeFully(ByteBuffer.wrap(bytes));
+		} else {
+			buffer.put(bytes);
+		}
+	}
+
+	private void writeBuffer() {
+		if (buffer.position() > 0 && failure == null) {
+			buffer.flip();
+			writeFully(buffer);
+		}
+		buffer.clear();
+	}
+
+	// Once a write fails, the writer keeps taking lines so producers are not blocked, but drops them.
+	private void writeFully(ByteBuffer source) {
+		try {
+			while (source.hasRemaining()) {
+				channel.write(source);
+			}
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		if (failure != null) {
+			throw new IOException("Writing animal output failed", failure);
+		}
+	}
+}
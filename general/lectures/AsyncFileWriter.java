@@ -0,0 +1,245 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Writes to a file without making the caller wait on the disk.
+// A write copies its bytes into a pooled direct buffer and returns a future that completes once they reach the file.
+// While earlier buffers are still being written, new writes keep filling the current buffer,
+// so many small adjacent writes go out as one positional write.
+// The pool is bounded: when every buffer is full or in flight, write() blocks until one is free (backpressure).
+// flush() completes once everything written so far has been forced to the storage device.
+// After an I/O failure the writer is broken: the failed write, every later write() and every later flush()
+// complete exceptionally, and later writes are not attempted.
+public class AsyncFileWriter implements Closeable {
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	private static final int DEFAULT_BUFFER_COUNT = 16;
+
+	private final AsynchronousFileChannel channel;
+	private final ArrayBlockingQueue<ByteBuffer> freeBuffers;
+	// Runs the blocking force() calls of flush(), so they don't tie up a thread of the shared common pool.
+	private final ExecutorService forcer;
+	private final Object lock = new Object();
+
+	// All of the following are guarded by lock.
+	private ByteBuffer current;
+	private CompletableFuture<Void> currentWritten;
+	private CompletableFuture<Void> allWritten = CompletableFuture.completedFuture(null);
+	private long position;
+	private int inFlight;
+	private boolean closed;
+	private Throwable failure;
+
+	public AsyncFileWriter(String path, boolean append) throws IOException {
+		this(path, append, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+	}
+
+	public AsyncFileWriter(String path, boolean append, int bufferSize, int bufferCount) throws IOException {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive");
+		}
+		if (bufferCount <= 0) {
+			throw new IllegalArgumentException("Buffer count must be positive");
+		}
+
+		if (append) {
+			channel = AsynchronousFileChannel.open(Paths.get(path), StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+			position = channel.size();
+		} else {
+			channel = AsynchronousFileChannel.open(Paths.get(path), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+		for (int i = 0; i < bufferCount; i++) {
+			freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+		}
+
+		forcer = Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "async-file-writer-force");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public CompletableFuture<Void> write(String text) throws InterruptedException {
+		return write(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// Blocks only if the buffer pool is exhausted. An interrupt can only stop the write before any of it is buffered:
+	// once the data has started going into buffers, the rest follows, so a record is never torn.
+	public CompletableFuture<Void> write(byte[] data) throws InterruptedException {
+		synchronized (lock) {
+			if (closed) {
+				throw new IllegalStateException("Writer is closed");
+			}
+			if (failure != null) {
+				return CompletableFuture.failedFuture(failure);
+			}
+
+			// Wait for the first buffer we need before touching any buffer.
+			ByteBuffer next = null;
+			if (current == null || current.remaining() < data.length) {
+				next = freeBuffers.take();
+			}
+
+			CompletableFuture<Void> written = null;
+			int offset = 0;
+			do {
+				if (current == null) {
+					if (next != null) {
+						current = next;
+						next = null;
+					} else {
+						current = takeUninterruptibly();
+					}
+					currentWritten = new CompletableFuture<>();
+				}
+
+				int length = Math.min(current.remaining(), data.length - offset);
+				current.put(data, offset, length);
+				offset += length;
+
+				// A write that spans several buffers is only done when all of them are.
+				written = written == null ? currentWritten : CompletableFuture.allOf(written, currentWritten);
+
+				if (!current.hasRemaining()) {
+					submit();
+				}
+			} while (offset < data.length);
+			if (next != null) {
+				freeBuffers.add(next);
+			}
+
+			// If nothing is in flight there is nothing to coalesce with, so start writing immediately.
+			if (inFlight == 0 && current != null) {
+				submit();
+			}
+
+			return written;
+		}
+	}
+
+	// Submits the current buffer and returns a future that completes once everything written so far is durable.
+	public CompletableFuture<Void> flush() {
+		CompletableFuture<Void> written;
+		synchronized (lock) {
+			if (current != null && current.position() > 0) {
+				submit();
+			}
+			written = allWritten;
+		}
+
+		return written.thenRunAsync(() -> {
+			try {
+				channel.force(true);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, forcer);
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+
+		try {
+			flush().join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			forcer.shutdown();
+			channel.close();
+		}
+	}
+
+	// Must be called while holding lock.
+	private void submit() {
+		ByteBuffer buffer = current;
+		CompletableFuture<Void> written = currentWritten;
+		current = null;
+		currentWritten = null;
+
+		buffer.flip();
+		long start = position;
+		position += buffer.remaining();
+		inFlight++;
+		allWritten = CompletableFuture.allOf(allWritten, written);
+
+		channel.write(buffer, start, null, new CompletionHandler<Integer, Void>() {
+			@Override
+			public void completed(Integer result, Void attachment) {
+				// A positional write may be partial- keep going from where it stopped.
+				if (buffer.hasRemaining()) {
+					channel.write(buffer, start + buffer.position(), null, this);
+					return;
+				}
+				finish(buffer, written, null);
+			}
+
+			@Override
+			public void failed(Throwable exception, Void attachment) {
+				finish(buffer, written, exception);
+			}
+		});
+	}
+
+	// Must be called while holding lock. Other threads can only return buffers, never take them, while we wait.
+	private ByteBuffer takeUninterruptibly() {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return freeBuffers.take();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void finish(ByteBuffer buffer, CompletableFuture<Void> written, Throwable exception) {
+		// Return the buffer before taking the lock: a writer may be holding the lock while waiting for this buffer.
+		buffer.clear();
+		freeBuffers.add(buffer);
+
+		synchronized (lock) {
+			inFlight--;
+			if (exception != null && failure == null) {
+				failure = exception;
+			}
+			// Writes that piled up while we were busy go out together now.
+			if (inFlight == 0 && current != null && current.position() > 0) {
+				submit();
+			}
+		}
+
+		if (exception == null) {
+			written.complete(null);
+		} else {
+			written.completeExceptionally(exception);
+		}
+	}
+}
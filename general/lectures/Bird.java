@@ -5,11 +5,11 @@ public class Bird extends Animal implements EggLayer {
 
 	@Override
 	public void speak() {
-		System.out.println("Tweet!");
+		output().println("Tweet!");
 	}
 
 	@Override
 	public final void layEgg() {
-		System.out.printf("%s laid an egg!%n", name);
+		output().printf("%s laid an egg!%n", name);
 	}
 }
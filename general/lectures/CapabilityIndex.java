@@ -0,0 +1,156 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.function.Consumer;
+
+// A registry of animals that answers questions like "which animals are egg-laying mammals?" without looking at each animal.
+//
+// Every Animal class gets a bitmask of its capabilities, one bit per Capability it is assignable to.
+// The mask is worked out once per class with isAssignableFrom and cached in a ClassValue, the JDK's
+// per-class cache, so adding an animal costs one lookup instead of a chain of instanceof checks.
+// The registry keeps one BitSet per capability, where bit i is set if animal i has it,
+// so a query is an AND of a few bitsets, 64 animals per step.
+public class CapabilityIndex {
+	private static final Capability[] CAPABILITIES = Capability.values();
+
+	private static final ClassValue<Integer> MASKS = new ClassValue<Integer>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			int mask = 0;
+			for (Capability capability : CAPABILITIES) {
+				if (capability.getType().isAssignableFrom(type)) {
+					mask |= 1 << capability.ordinal();
+				}
+			}
+			return mask;
+		}
+	};
+
+	private final BitSet[] withCapability = new BitSet[CAPABILITIES.length];
+	private final BitSet present = new BitSet();
+	private Animal[] animals = new Animal[16];
+	private int size;
+
+	public CapabilityIndex() {
+		for (int i = 0; i < withCapability.length; i++) {
+			withCapability[i] = new BitSet();
+		}
+	}
+
+	// Returns the capabilities of a class as a bitmask, with bit n set for the Capability whose ordinal() is n.
+	public static int capabilitiesOf(Class<? extends Animal> type) {
+		return MASKS.get(type);
+	}
+
+	public static boolean has(Animal animal, Capability capability) {
+		return (MASKS.get(animal.getClass()) & (1 << capability.ordinal())) != 0;
+	}
+
+	// Adds an animal and returns its id, which is its bit in the bitsets returned by query().
+	public int add(Animal animal) {
+		if (animal == null) {
+			throw new IllegalArgumentException("Animal cannot be null");
+		}
+		if (size == animals.length) {
+			animals = Arrays.copyOf(animals, size * 2);
+		}
+
+		int id = size++;
+		animals[id] = animal;
+		present.set(id);
+		for (int mask = MASKS.get(animal.getClass()); mask != 0; mask &= mask - 1) {
+			withCapability[Integer.numberOfTrailingZeros(mask)].set(id);
+		}
+		return id;
+	}
+
+	// Removes an animal. Its id is not reused.
+	public void remove(int id) {
+		checkId(id);
+		animals[id] = null;
+		present.clear(id);
+		for (BitSet bits : withCapability) {
+			bits.clear(id);
+		}
+	}
+
+	public Animal get(int id) {
+		checkId(id);
+		return animals[id];
+	}
+
+	// The number of animals in the registry, not counting removed ones.
+	public int size() {
+		return present.cardinality();
+	}
+
+	// Returns the ids of the animals that have all of the given capabilities, such as query(EGG_LAYER, MAMMAL).
+	// With no capabilities, returns every animal.
+	public BitSet query(Capability... required) {
+		BitSet result = (BitSet) present.clone();
+		for (Capability capability : required) {
+			result.and(withCapability[capability.ordinal()]);
+		}
+		return result;
+	}
+
+	// Returns the ids of the animals that have all of the required capabilities and none of the excluded ones.
+	public BitSet query(EnumSet<Capability> required, EnumSet<Capability> excluded) {
+		BitSet result = query(required.toArray(new Capability[0]));
+		for (Capability capability : excluded) {
+			result.andNot(withCapability[capability.ordinal()]);
+		}
+		return result;
+	}
+
+	public int count(Capability... required) {
+		if (required.length == 1) {
+			return withCapability[required[0].ordinal()].cardinality();
+		}
+		return query(required).cardinality();
+	}
+
+	// Calls the action for each animal whose id is set in the result of a query, in id order.
+	public void forEach(BitSet ids, Consumer<? super Animal> action) {
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+			if (id >= size) {
+				break;
+			}
+			if (animals[id] != null) {
+				action.accept(animals[id]);
+			}
+		}
+	}
+
+	// Calls layEgg() on every egg layer. The capability bit guarantees the cast is safe.
+	public void layEggAll() {
+		forEach(withCapability[Capability.EGG_LAYER.ordinal()], animal -> ((EggLayer) animal).layEgg());
+	}
+
+	private void checkId(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("Id " + id + " is out of bounds for size " + size);
+		}
+	}
+}
+
+// The classes and interfaces an animal can be queried by. Each one is a bit in a capability mask.
+enum Capability {
+	MAMMAL(Mammal.class),
+	MONOTREME(Monotreme.class),
+	EGG_LAYER(EggLayer.class),
+	CAT(Cat.class),
+	DOG(Dog.class),
+	BIRD(Bird.class),
+	PLATYPUS(Platypus.class);
+
+	private final Class<?> type;
+
+	Capability(Class<?> type) {
+		this.type = type;
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+}
@@ -5,11 +5,11 @@ public final class Cat extends Mammal {
 
 	@Override
 	public void bathTime() {
-		System.out.printf("%s hates baths and ran away!%n", name);
+		output().printf("%s hates baths and ran away!%n", name);
 	}
 
 	@Override
 	public void speak() {
-		System.out.println("Meow!");
+		output().println("Meow!");
 	}
 }
@@ -0,0 +1,24 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// Prints nothing, but counts how many lines would have been printed.
+class CountingAnimalOutput implements AnimalOutput {
+	private final LongAdder lines = new LongAdder();
+
+	@Override
+	public void println(String line) {
+		lines.increment();
+	}
+
+	@Override
+	public void printf(String format, Object... args) {
+		lines.increment();
+	}
+
+	public long getLines() {
+		return lines.sum();
+	}
+
+	public void reset() {
+		lines.reset();
+	}
+}
@@ -0,0 +1,252 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Summarizes a stream of numbers, such as request times, separately for each day of the week.
+// For each day it keeps the count, sum, minimum and maximum, and a histogram for estimating quantiles,
+// all in a fixed amount of memory no matter how many values are added.
+//
+// The summaries are split into a fixed number of shards, and each thread adds to the shard its hash picks,
+// so adding never waits for a lock and rarely contends with other threads. Shards are shared with atomic updates,
+// so memory stays bounded however many threads come and go. Reading a summary merges every shard.
+// A summary read while other threads are still adding may be missing a value from some fields but not others;
+// once adding stops, every value is counted exactly once.
+public class DayAggregator {
+	private static final int DAYS = Day.values().length;
+	// A power of two at least twice the number of processors, so running threads seldom share a shard.
+	private static final int SHARDS = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+	private static final VarHandle SHARD = MethodHandles.arrayElementVarHandle(Shard[].class);
+
+	// Created on first use, since each shard holds a histogram for every day.
+	private final Shard[] shards = new Shard[SHARDS];
+
+	public void add(Day day, double value) {
+		if (Double.isNaN(value)) {
+			throw new IllegalArgumentException("Value cannot be NaN.");
+		}
+		localShard().buckets[day.ordinal()].add(value);
+	}
+
+	private Shard localShard() {
+		int hash = Thread.currentThread().hashCode() * 0x9E3779B9;
+		int index = hash >>> (Integer.SIZE - Integer.numberOfTrailingZeros(SHARDS));
+		Shard shard = (Shard) SHARD.getAcquire(shards, index);
+		if (shard == null) {
+			Shard created = new Shard();
+			shard = (Shard) SHARD.compareAndExchange(shards, index, null, created);
+			if (shard == null) {
+				shard = created;
+			}
+		}
+		return shard;
+	}
+
+	public DaySummary summary(Day day) {
+		DaySummary summary = new DaySummary();
+		for (int i = 0; i < SHARDS; i++) {
+			Shard shard = (Shard) SHARD.getAcquire(shards, i);
+			if (shard != null) {
+				shard.buckets[day.ordinal()].addTo(summary);
+			}
+		}
+		return summary;
+	}
+
+	// Returns a summary for every day, indexed by ordinal().
+	public DaySummary[] summaries() {
+		DaySummary[] summaries = new DaySummary[DAYS];
+		for (Day day : Day.values()) {
+			summaries[day.ordinal()] = summary(day);
+		}
+		return summaries;
+	}
+
+	private static final class Shard {
+		final Bucket[] buckets = new Bucket[DAYS];
+
+		Shard() {
+			for (int i = 0; i < DAYS; i++) {
+				buckets[i] = new Bucket();
+			}
+		}
+	}
+
+	// One day's running summary in one shard. Several threads may add to it at once, so every field is updated atomically:
+	// the counts with getAndAdd and the sum, minimum and maximum with compare-and-set loops.
+	private static final class Bucket {
+		private static final VarHandle COUNT;
+		private static final VarHandle SUM;
+		private static final VarHandle MIN;
+		private static final VarHandle MAX;
+		private static final VarHandle BINS = MethodHandles.arrayElementVarHandle(long[].class);
+
+		static {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				COUNT = lookup.findVarHandle(Bucket.class, "count", long.class);
+				SUM = lookup.findVarHandle(Bucket.class, "sum", double.class);
+				MIN = lookup.findVarHandle(Bucket.class, "min", double.class);
+				MAX = lookup.findVarHandle(Bucket.class, "max", double.class);
+			} catch (ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		private long count;
+		private double sum;
+		private double min = Double.POSITIVE_INFINITY;
+		private double max = Double.NEGATIVE_INFINITY;
+		private final long[] bins = new long[DaySummary.BINS];
+
+		void add(double value) {
+			BINS.getAndAdd(bins, DaySummary.binOf(value), 1L);
+			COUNT.getAndAdd(this, 1L);
+
+			double current = (double) SUM.getVolatile(this);
+			while (!SUM.weakCompareAndSet(this, current, current + value)) {
+				current = (double) SUM.getVolatile(this);
+			}
+
+			current = (double) MIN.getVolatile(this);
+			while (value < current && !MIN.weakCompareAndSet(this, current, value)) {
+				current = (double) MIN.getVolatile(this);
+			}
+
+			current = (double) MAX.getVolatile(this);
+			while (value > current && !MAX.weakCompareAndSet(this, current, value)) {
+				current = (double) MAX.getVolatile(this);
+			}
+		}
+
+		void addTo(DaySummary summary) {
+			long[] binCounts = new long[DaySummary.BINS];
+			for (int i = 0; i < binCounts.length; i++) {
+				binCounts[i] = (long) BINS.getOpaque(bins, i);
+			}
+			summary.mergeFrom((long) COUNT.getOpaque(this), (double) SUM.getOpaque(this), (double) MIN.getOpaque(this),
+					(double) MAX.getOpaque(this), binCounts);
+		}
+	}
+}
+
+// The count, sum, minimum, maximum and estimated quantiles of some values. Two summaries can be merged into one.
+//
+// Quantiles come from a histogram with logarithmically sized bins, separately for negative and positive values
+// (the approach of the DDSketch algorithm). Any estimate between 1e-6 and 1e9 in size is within 2% of a value
+// that really is at that rank. Smaller and larger values are grouped into the first and last bins, and estimates
+// are always kept between the minimum and the maximum.
+class DaySummary {
+	private static final double RELATIVE_ACCURACY = 0.02;
+	private static final double MIN_MAGNITUDE = 1e-6;
+	private static final double MAX_MAGNITUDE = 1e9;
+
+	private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+	private static final double LOG_GAMMA = Math.log(GAMMA);
+	private static final int OFFSET = (int) Math.ceil(Math.log(MIN_MAGNITUDE) / LOG_GAMMA);
+	private static final int MAGNITUDE_BINS = (int) Math.ceil(Math.log(MAX_MAGNITUDE) / LOG_GAMMA) - OFFSET + 1;
+
+	// The layout is negative values from the largest magnitude down, then zero, then positive values up,
+	// so walking the bins in order walks the values in ascending order.
+	private static final int ZERO_BIN = MAGNITUDE_BINS;
+	static final int BINS = 2 * MAGNITUDE_BINS + 1;
+
+	private long count;
+	private double sum;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private final long[] bins = new long[BINS];
+
+	DaySummary() {
+	}
+
+	public static DaySummary merge(DaySummary first, DaySummary second) {
+		DaySummary merged = new DaySummary();
+		merged.mergeFrom(first.count, first.sum, first.min, first.max, first.bins);
+		merged.mergeFrom(second.count, second.sum, second.min, second.max, second.bins);
+		return merged;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getSum() {
+		return sum;
+	}
+
+	// Returns NaN if there are no values.
+	public double getMean() {
+		return count == 0 ? Double.NaN : sum / count;
+	}
+
+	// Returns NaN if there are no values.
+	public double getMin() {
+		return count == 0 ? Double.NaN : min;
+	}
+
+	// Returns NaN if there are no values.
+	public double getMax() {
+		return count == 0 ? Double.NaN : max;
+	}
+
+	// Estimates the value below which the given fraction of the values fall, such as 0.5 for the median
+	// or 0.99 for the 99th percentile. Returns NaN if there are no values.
+	public double getQuantile(double fraction) {
+		if (!(fraction >= 0 && fraction <= 1)) {
+			throw new IllegalArgumentException("Fraction must be between 0 and 1.");
+		}
+
+		long total = 0;
+		for (long binCount : bins) {
+			total += binCount;
+		}
+		if (total == 0) {
+			return Double.NaN;
+		}
+
+		long rank = (long) (fraction * (total - 1));
+		long seen = 0;
+		for (int bin = 0; bin < BINS; bin++) {
+			seen += bins[bin];
+			if (seen > rank) {
+				return Math.max(min, Math.min(max, valueOf(bin)));
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count %d, mean %.2f, min %.2f, median %.2f, p99 %.2f, max %.2f", count, getMean(), getMin(),
+				getQuantile(0.5), getQuantile(0.99), getMax());
+	}
+
+	void mergeFrom(long count, double sum, double min, double max, long[] bins) {
+		this.count += count;
+		this.sum += sum;
+		this.min = Math.min(this.min, min);
+		this.max = Math.max(this.max, max);
+		for (int i = 0; i < BINS; i++) {
+			this.bins[i] += bins[i];
+		}
+	}
+
+	static int binOf(double value) {
+		if (value == 0) {
+			return ZERO_BIN;
+		}
+		double magnitude = Math.abs(value);
+		int index = (int) Math.ceil(Math.log(Math.max(MIN_MAGNITUDE, Math.min(MAX_MAGNITUDE, magnitude))) / LOG_GAMMA) - OFFSET;
+		index = Math.max(0, Math.min(MAGNITUDE_BINS - 1, index));
+		return value > 0 ? ZERO_BIN + 1 + index : ZERO_BIN - 1 - index;
+	}
+
+	// A bin holds magnitudes between GAMMA^(i - 1) and GAMMA^i. This point is within RELATIVE_ACCURACY of both ends.
+	private static double valueOf(int bin) {
+		if (bin == ZERO_BIN) {
+			return 0;
+		}
+		int index = bin > ZERO_BIN ? bin - ZERO_BIN - 1 : ZERO_BIN - 1 - bin;
+		double magnitude = 2 * Math.pow(GAMMA, index + OFFSET) / (GAMMA + 1);
+		return bin > ZERO_BIN ? magnitude : -magnitude;
+	}
+}
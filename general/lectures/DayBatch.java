@@ -0,0 +1,115 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+// Classifies every day token in a file, or in standard input, the same way EnumsAndSwitch.tellItLikeItIs does,
+// and prints how many tokens got each message.
+// Usage: java DayBatch [file]
+//
+// Tokens are separated by whitespace and matched ignoring case, like "monday" or "Friday".
+// Instead of a Scanner, which runs a regular expression for every token, the input is read in large blocks
+// and split by hand eight bytes at a time, and each token is matched in place with Day.parse. Nothing is allocated per token.
+public class DayBatch {
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	// No day name is longer than this, so a longer token can be counted as invalid without being kept.
+	private static final int MAX_TOKEN = 9;
+
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	public static void main(String[] args) throws IOException {
+		long[] counts;
+		if (args.length > 0) {
+			try (InputStream in = new FileInputStream(args[0])) {
+				counts = classify(in);
+			}
+		} else {
+			counts = classify(System.in);
+		}
+		print(counts, System.out);
+	}
+
+	// Returns the number of tokens for each Day, indexed by ordinal(), followed by the number of invalid tokens.
+	public static long[] classify(InputStream in) throws IOException {
+		long[] counts = new long[Day.values().length + 1];
+		// The extra eight bytes let the last word of a block be read whole; bytes past the end are masked out.
+		byte[] buffer = new byte[BUFFER_SIZE + 8];
+
+		// A token cut off by the end of the buffer is moved to the front so the next read completes it.
+		// If it is already too long to be a day, only the fact that it is invalid is carried over.
+		int kept = 0;
+		boolean overlong = false;
+		int read;
+		while ((read = in.read(buffer, kept, BUFFER_SIZE - kept)) != -1) {
+			int end = kept + read;
+			int start = 0;
+			for (int i = kept; i < end; i += 8) {
+				long word = (long) LONGS.get(buffer, i);
+				// Adding 0x5F to the low seven bits of a byte sets its high bit if they were above ' '.
+				// After the OR with the byte itself and the NOT, only the bytes from 0 to ' ' keep their high bit set.
+				long separators = ~(((word & 0x7F7F7F7F7F7F7F7FL) + 0x5F5F5F5F5F5F5F5FL) | word) & 0x8080808080808080L;
+				if (end - i < 8) {
+					separators &= (1L << ((end - i) * 8)) - 1;
+				}
+
+				// Each separator ends the token that began after the previous one, if there is anything in between.
+				while (separators != 0) {
+					int separator = i + (Long.numberOfTrailingZeros(separators) >>> 3);
+					if (separator > start || overlong) {
+						count(counts, buffer, start, separator, overlong);
+						overlong = false;
+					}
+					start = separator + 1;
+					separators &= separators - 1;
+				}
+			}
+
+			kept = 0;
+			if (start < end) {
+				int length = end - start;
+				if (overlong || length > MAX_TOKEN) {
+					overlong = true;
+				} else {
+					System.arraycopy(buffer, start, buffer, 0, length);
+					kept = length;
+				}
+			}
+		}
+		if (kept > 0 || overlong) {
+			count(counts, buffer, 0, kept, overlong);
+		}
+		return counts;
+	}
+
+	// Prints one line per message, in the order the messages first appear for Sunday through Saturday,
+	// followed by the number of invalid tokens. Everything is built first and printed at once.
+	public static void print(long[] counts, PrintStream out) {
+		String[] messages = EnumsAndSwitch.MESSAGES;
+		StringBuilder report = new StringBuilder();
+		for (int i = 0; i < messages.length; i++) {
+			boolean seenBefore = false;
+			long total = 0;
+			for (int j = 0; j < messages.length; j++) {
+				if (messages[j].equals(messages[i])) {
+					seenBefore |= j < i;
+					total += counts[j];
+				}
+			}
+			if (!seenBefore) {
+				report.append(String.format("%-25s %,d%n", messages[i], total));
+			}
+		}
+		report.append(String.format("%-25s %,d%n", "Invalid day entered.", counts[messages.length]));
+		out.print(report);
+		out.flush();
+	}
+
+	private static void count(long[] counts, byte[] buffer, int start, int end, boolean overlong) {
+		Day day = overlong ? null : Day.parse(buffer, start, end - start);
+		counts[day == null ? counts.length - 1 : day.ordinal()]++;
+	}
+}
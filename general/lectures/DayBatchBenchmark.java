@@ -0,0 +1,59 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Scanner;
+
+// Compares DayBatch.classify with the Scanner approach of EnumsAndSwitch.main applied to every token:
+// next(), toUpperCase() and Day.valueOf() inside a try/catch.
+// Both read the same in-memory input, so only the reading and classifying cost is measured.
+public class DayBatchBenchmark {
+	private static final int TOKENS = 2_000_000;
+	private static final int ROUNDS = 3;
+	private static final String[] INVALID = { "Someday", "MON", "Thursdays", "holiday", "2024-01-01T00:00:00Z" };
+
+	public static void main(String[] args) throws IOException {
+		Random random = new Random(42);
+		Day[] days = Day.values();
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < TOKENS; i++) {
+			String token = random.nextInt(10) == 0 ? INVALID[random.nextInt(INVALID.length)] : days[random.nextInt(days.length)].name();
+			text.append(random.nextBoolean() ? token.toLowerCase() : token);
+			text.append(i % 8 == 7 ? "\r\n" : " ");
+		}
+		byte[] input = text.toString().getBytes(StandardCharsets.US_ASCII);
+
+		long[] expected = withScanner(input);
+		long[] actual = DayBatch.classify(new ByteArrayInputStream(input));
+		if (!Arrays.equals(expected, actual)) {
+			throw new IllegalStateException("DayBatch counts " + Arrays.toString(actual) + " differ from Scanner counts " + Arrays.toString(expected));
+		}
+		DayBatch.print(actual, System.out);
+
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			withScanner(input);
+			long middle = System.nanoTime();
+			DayBatch.classify(new ByteArrayInputStream(input));
+			long end = System.nanoTime();
+
+			System.out.printf("Round %d: Scanner %d ms, DayBatch %d ms (%.0fx)%n", round + 1, (middle - start) / 1_000_000,
+					(end - middle) / 1_000_000, (double) (middle - start) / (end - middle));
+		}
+	}
+
+	private static long[] withScanner(byte[] input) {
+		long[] counts = new long[Day.values().length + 1];
+		try (Scanner scanner = new Scanner(new ByteArrayInputStream(input), StandardCharsets.US_ASCII)) {
+			while (scanner.hasNext()) {
+				try {
+					counts[Day.valueOf(scanner.next().toUpperCase()).ordinal()]++;
+				} catch (IllegalArgumentException e) {
+					counts[counts.length - 1]++;
+				}
+			}
+		}
+		return counts;
+	}
+}
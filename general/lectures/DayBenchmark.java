@@ -0,0 +1,103 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// Compares ways of turning day tokens into Day values and messages:
+// 1. Parsing: toUpperCase() plus Day.valueOf() with a try/catch, against Day.parse on a String and on raw bytes.
+// 2. Dispatch: the switch in EnumsAndSwitch.messageFor, against the EnumsAndSwitch.MESSAGES table.
+// A tenth of the tokens are not days, so the exception path of valueOf() is part of the measurement.
+public class DayBenchmark {
+	private static final int TOKENS = 1_000_000;
+	private static final int ROUNDS = 5;
+	private static final String[] INVALID = { "Someday", "MON", "Thursdays", "holiday" };
+
+	public static void main(String[] args) {
+		Random random = new Random(42);
+		Day[] days = Day.values();
+		String[] tokens = new String[TOKENS];
+		for (int i = 0; i < TOKENS; i++) {
+			tokens[i] = random.nextInt(10) == 0 ? INVALID[random.nextInt(INVALID.length)] : mixCase(days[random.nextInt(days.length)].name(), random);
+		}
+
+		// Put all the tokens in one byte array, as they would be after reading a file.
+		byte[] bytes = String.join("", tokens).getBytes(StandardCharsets.US_ASCII);
+		int[] offsets = new int[TOKENS + 1];
+		for (int i = 0; i < TOKENS; i++) {
+			offsets[i + 1] = offsets[i] + tokens[i].length();
+		}
+
+		Day[] parsed = new Day[TOKENS];
+		for (int i = 0; i < TOKENS; i++) {
+			parsed[i] = withValueOf(tokens[i]);
+			if (Day.parse(tokens[i]) != parsed[i] || Day.parse(bytes, offsets[i], offsets[i + 1] - offsets[i]) != parsed[i]) {
+				throw new IllegalStateException("Day.parse disagrees with valueOf for " + tokens[i]);
+			}
+			if (parsed[i] != null && !EnumsAndSwitch.MESSAGES[parsed[i].ordinal()].equals(EnumsAndSwitch.messageFor(parsed[i]))) {
+				throw new IllegalStateException("MESSAGES disagrees with the switch for " + parsed[i]);
+			}
+		}
+
+		// The checksums keep the JIT from removing work whose result is never used.
+		for (int round = 0; round < ROUNDS; round++) {
+			long checksum = 0;
+			long start = System.nanoTime();
+			for (String token : tokens) {
+				Day day = withValueOf(token);
+				checksum += day == null ? -1 : day.ordinal();
+			}
+			long valueOf = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (String token : tokens) {
+				Day day = Day.parse(token);
+				checksum += day == null ? -1 : day.ordinal();
+			}
+			long parseString = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < TOKENS; i++) {
+				Day day = Day.parse(bytes, offsets[i], offsets[i + 1] - offsets[i]);
+				checksum += day == null ? -1 : day.ordinal();
+			}
+			long parseBytes = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (Day day : parsed) {
+				if (day != null) {
+					checksum += EnumsAndSwitch.messageFor(day).length();
+				}
+			}
+			long viaSwitch = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (Day day : parsed) {
+				if (day != null) {
+					checksum += EnumsAndSwitch.MESSAGES[day.ordinal()].length();
+				}
+			}
+			long viaTable = System.nanoTime() - start;
+
+			System.out.printf("Round %d: valueOf %d ns/token, parse(String) %d ns/token, parse(byte[]) %d ns/token, "
+					+ "switch %.1f ns/day, table %.1f ns/day (checksum %d)%n", round + 1, valueOf / TOKENS, parseString / TOKENS,
+					parseBytes / TOKENS, (double) viaSwitch / TOKENS, (double) viaTable / TOKENS, checksum);
+		}
+	}
+
+	// What EnumsAndSwitch.main does, returning null instead of printing "Invalid day entered."
+	private static Day withValueOf(String token) {
+		try {
+			return Day.valueOf(token.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static String mixCase(String name, Random random) {
+		char[] chars = name.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			if (random.nextBoolean()) {
+				chars[i] = Character.toLowerCase(chars[i]);
+			}
+		}
+		return new String(chars);
+	}
+}
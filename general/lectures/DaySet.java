@@ -0,0 +1,280 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.function.Consumer;
+
+// An immutable set of days, such as the days of the week a job runs on, stored as seven bits.
+// Bit n stands for the day whose ordinal() is n, the same layout EnumSet uses internally.
+//
+// There are only 128 possible sets, and each one is created once up front, so union, intersection and
+// complement just pick an existing instance: they never allocate, and two equal sets are always the same object.
+// For the next scheduled day after a given day, a table holds the answer for every set and every day.
+public final class DaySet {
+	private static final Day[] DAYS = Day.values();
+	private static final int ALL_BITS = (1 << DAYS.length) - 1;
+
+	private static final DaySet[] SETS = new DaySet[ALL_BITS + 1];
+
+	// NEXT[bits][day] is the ordinal of the first day in the set after the given day, wrapping around the week, or -1.
+	private static final byte[][] NEXT = new byte[ALL_BITS + 1][DAYS.length];
+
+	static {
+		for (int bits = 0; bits <= ALL_BITS; bits++) {
+			SETS[bits] = new DaySet(bits);
+			for (int day = 0; day < DAYS.length; day++) {
+				NEXT[bits][day] = -1;
+				for (int ahead = 1; ahead <= DAYS.length; ahead++) {
+					int candidate = (day + ahead) % DAYS.length;
+					if ((bits & (1 << candidate)) != 0) {
+						NEXT[bits][day] = (byte) candidate;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	public static final DaySet NONE = SETS[0];
+	public static final DaySet ALL = SETS[ALL_BITS];
+	public static final DaySet WEEKDAYS = of(Day.MONDAY, Day.TUESDAY, Day.WEDNESDAY, Day.THURSDAY, Day.FRIDAY);
+	public static final DaySet WEEKEND = of(Day.SATURDAY, Day.SUNDAY);
+
+	private final int bits;
+
+	private DaySet(int bits) {
+		this.bits = bits;
+	}
+
+	public static DaySet of(Day... days) {
+		int bits = 0;
+		for (Day day : days) {
+			bits |= bit(day);
+		}
+		return SETS[bits];
+	}
+
+	public static DaySet of(Day day) {
+		return SETS[bit(day)];
+	}
+
+	// Accepts any collection of days, including an EnumSet<Day>.
+	public static DaySet copyOf(Collection<Day> days) {
+		int bits = 0;
+		for (Day day : days) {
+			bits |= bit(day);
+		}
+		return SETS[bits];
+	}
+
+	public static DaySet fromBits(int bits) {
+		if ((bits & ~ALL_BITS) != 0) {
+			throw new IllegalArgumentException("Only the lowest " + DAYS.length + " bits can be set, but got " + Integer.toBinaryString(bits));
+		}
+		return SETS[bits];
+	}
+
+	public int toBits() {
+		return bits;
+	}
+
+	public EnumSet<Day> toEnumSet() {
+		EnumSet<Day> days = EnumSet.noneOf(Day.class);
+		forEach(days::add);
+		return days;
+	}
+
+	public boolean contains(Day day) {
+		return (bits & bit(day)) != 0;
+	}
+
+	public boolean containsAll(DaySet other) {
+		return (other.bits & ~bits) == 0;
+	}
+
+	public DaySet with(Day day) {
+		return SETS[bits | bit(day)];
+	}
+
+	public DaySet without(Day day) {
+		return SETS[bits & ~bit(day)];
+	}
+
+	public DaySet union(DaySet other) {
+		return SETS[bits | other.bits];
+	}
+
+	public DaySet intersection(DaySet other) {
+		return SETS[bits & other.bits];
+	}
+
+	public DaySet complement() {
+		return SETS[~bits & ALL_BITS];
+	}
+
+	public int size() {
+		return Integer.bitCount(bits);
+	}
+
+	public boolean isEmpty() {
+		return bits == 0;
+	}
+
+	// Returns the first day in the set after the given day, wrapping around to the next week, or null if the set is empty.
+	// If the given day is the only day in the set, the answer is the same day a week later.
+	public Day nextAfter(Day day) {
+		int next = NEXT[bits][day.ordinal()];
+		return next < 0 ? null : DAYS[next];
+	}
+
+	// Returns how many days after the given day the next day in the set is (1 to 7), or -1 if the set is empty.
+	public int daysUntilNextAfter(Day day) {
+		int next = NEXT[bits][day.ordinal()];
+		if (next < 0) {
+			return -1;
+		}
+		int days = next - day.ordinal();
+		return days > 0 ? days : days + DAYS.length;
+	}
+
+	// Calls the action for each day in the set from Sunday to Saturday. Unlike an Iterator, this needs no extra object.
+	public void forEach(Consumer<? super Day> action) {
+		for (int rest = bits; rest != 0; rest &= rest - 1) {
+			action.accept(DAYS[Integer.numberOfTrailingZeros(rest)]);
+		}
+	}
+
+	// Every DaySet with the same days is the same object, so this is the same as ==.
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof DaySet && ((DaySet) other).bits == bits;
+	}
+
+	@Override
+	public int hashCode() {
+		return bits;
+	}
+
+	// The same format as EnumSet.toString(), such as "[MONDAY, FRIDAY]".
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder("[");
+		forEach(day -> text.append(text.length() > 1 ? ", " : "").append(day));
+		return text.append(']').toString();
+	}
+
+	private static int bit(Day day) {
+		return 1 << day.ordinal();
+	}
+}
+
+// The schedules of many jobs at once, stored as one bitmap per day: bit j of the Monday bitmap is set if job j runs on Monday.
+// This makes questions about all jobs cheap: the jobs that run on Monday are already a bitmap,
+// and the jobs that run on any day of a DaySet are the OR of a few bitmaps, 64 jobs per operation.
+class DaySchedules {
+	private static final Day[] DAYS = Day.values();
+
+	private final long[][] bitmaps;
+	private final int jobs;
+
+	public DaySchedules(int jobs) {
+		if (jobs < 0) {
+			throw new IllegalArgumentException("Number of jobs cannot be negative.");
+		}
+		this.jobs = jobs;
+		this.bitmaps = new long[DAYS.length][(jobs + 63) >>> 6];
+	}
+
+	public int size() {
+		return jobs;
+	}
+
+	public void set(int job, DaySet schedule) {
+		checkJob(job);
+		int bits = schedule.toBits();
+		long mask = 1L << job;
+		for (int day = 0; day < DAYS.length; day++) {
+			if ((bits & (1 << day)) != 0) {
+				bitmaps[day][job >>> 6] |= mask;
+			} else {
+				bitmaps[day][job >>> 6] &= ~mask;
+			}
+		}
+	}
+
+	public DaySet get(int job) {
+		checkJob(job);
+		int bits = 0;
+		for (int day = 0; day < DAYS.length; day++) {
+			bits |= (int) ((bitmaps[day][job >>> 6] >>> job) & 1) << day;
+		}
+		return DaySet.fromBits(bits);
+	}
+
+	// Returns a bitmap of the jobs that run on the given day. Bit j of word j / 64 is set if job j does.
+	public long[] runningOn(Day day) {
+		return bitmaps[day.ordinal()].clone();
+	}
+
+	// Returns a bitmap of the jobs that run on at least one of the given days.
+	public long[] runningOnAny(DaySet days) {
+		long[] result = new long[bitmaps[0].length];
+		days.forEach(day -> {
+			long[] bitmap = bitmaps[day.ordinal()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] |= bitmap[i];
+			}
+		});
+		return result;
+	}
+
+	// Returns a bitmap of the jobs that run on every one of the given days.
+	public long[] runningOnAll(DaySet days) {
+		long[] result = new long[bitmaps[0].length];
+		Arrays.fill(result, -1L);
+		clearPastEnd(result);
+		days.forEach(day -> {
+			long[] bitmap = bitmaps[day.ordinal()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] &= bitmap[i];
+			}
+		});
+		return result;
+	}
+
+	public int countRunningOn(Day day) {
+		int count = 0;
+		for (long word : bitmaps[day.ordinal()]) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	// Returns the number of the first job at or after fromJob whose bit is set in the bitmap, or -1 if there is none.
+	// Use it to walk the jobs in a bitmap returned by the methods above.
+	public static int nextJob(long[] bitmap, int fromJob) {
+		int index = fromJob >>> 6;
+		if (index >= bitmap.length) {
+			return -1;
+		}
+		long word = bitmap[index] & (-1L << fromJob);
+		while (word == 0) {
+			if (++index == bitmap.length) {
+				return -1;
+			}
+			word = bitmap[index];
+		}
+		return (index << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	private void clearPastEnd(long[] bitmap) {
+		if ((jobs & 63) != 0) {
+			bitmap[bitmap.length - 1] &= (1L << jobs) - 1;
+		}
+	}
+
+	private void checkJob(int job) {
+		if (job < 0 || job >= jobs) {
+			throw new IndexOutOfBoundsException("Job " + job + " is out of bounds for " + jobs + " jobs");
+		}
+	}
+}
@@ -0,0 +1,52 @@
+import java.util.concurrent.atomic.DoubleAdder;
+
+// Keeps a running payroll total for a department while many threads adjust salaries at once.
+// The total is a DoubleAdder: it is striped over several cells, so concurrent updates rarely touch the same memory,
+// and total() just sums the cells without blocking any writer.
+// Each salary change goes through Person.getAndUpdateSalary, so no raise is lost even when two threads update the same Person.
+public class DepartmentPayroll {
+	private final String name;
+	private final DoubleAdder total = new DoubleAdder();
+
+	public DepartmentPayroll(String name) {
+		if (name == null || name.isBlank()) {
+			throw new IllegalArgumentException("Name cannot be null or blank.");
+		}
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void hire(Person person) {
+		total.add(person.getSalary());
+	}
+
+	// The caller must make sure the person is not being given a raise through this payroll at the same time.
+	public void release(Person person) {
+		total.add(-person.getSalary());
+	}
+
+	// Gives a raise of the given percentage, so giveRaise(p, 10) multiplies the salary by 1.1.
+	public void giveRaise(Person person, double percent) {
+		double factor = 1 + percent / 100;
+		double previous = person.getAndUpdateSalary(salary -> salary * factor);
+		total.add(previous * factor - previous);
+	}
+
+	public void setSalary(Person person, double salary) {
+		double previous = person.getAndUpdateSalary(current -> salary);
+		total.add(salary - previous);
+	}
+
+	// While updates are in progress this is a snapshot, not an exact point-in-time total.
+	public double total() {
+		return total.sum();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s payroll: $%.2f", name, total());
+	}
+}
@@ -5,10 +5,10 @@ public class Dog extends Mammal {
 
 	@Override
 	public void speak() {
-		System.out.println("Woof!");
+		output().println("Woof!");
 	}
 
 	public void playFetch() {
-		System.out.printf("Played fetch with %s!%n", name);
+		output().printf("Played fetch with %s!%n", name);
 	}
 }
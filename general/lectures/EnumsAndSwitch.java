@@ -49,6 +49,7 @@ public class EnumsAndSwitch {
 			// Here we convert the user input string to an enum constant of type Day.
 			// Note that the case of the input string must match the case of the enum constants.
 			// In this example, we convert the input to uppercase to match the enum constants.
+			// Day.parse (declared below) matches without the uppercase copy and returns null instead of throwing.
 			Day userDay = Day.valueOf(userInput);
 			tellItLikeItIs(userDay);
 		} catch (IllegalArgumentException e) {
@@ -58,6 +59,32 @@ public class EnumsAndSwitch {
 		input.close();
 	}
 
+	// The messages from tellItLikeItIs, one per day and indexed by ordinal().
+	// Looking a message up in this table does the same job as the switch below with a single array access.
+	// An EnumMap<Day, String> works the same way internally, but an array skips its type and null checks.
+	static final String[] MESSAGES = new String[Day.values().length];
+
+	static {
+		for (Day day : Day.values()) {
+			MESSAGES[day.ordinal()] = messageFor(day);
+		}
+	}
+
+	// The same choice as tellItLikeItIs, returning the message instead of printing it.
+	static String messageFor(Day day) {
+		switch (day) {
+			case MONDAY:
+				return "Mondays are bad.";
+			case FRIDAY:
+				return "Fridays are better.";
+			case SATURDAY:
+			case SUNDAY:
+				return "Weekends are best.";
+			default:
+				return "Midweek days are so-so.";
+		}
+	}
+
 	// The purpose of this function is to provide a message based on the day of the week.
 	private static void tellItLikeItIs(Day day) {
 		// We could accomplish this using a series of if-else-if statements, like so:
@@ -123,5 +150,58 @@ enum Day {
 	WEDNESDAY,
 	THURSDAY,
 	FRIDAY,
-	SATURDAY,
+	SATURDAY;
+
+	// values() returns a new copy of the array on every call, so parse() keeps one of its own.
+	private static final Day[] VALUES = values();
+
+	// No two days share both a name length and a first letter, so those two pick the only day a token could be.
+	private static final Day[] CANDIDATES = new Day[16 * 32];
+
+	static {
+		for (Day day : VALUES) {
+			CANDIDATES[slot(day.name().length(), day.name().charAt(0))] = day;
+		}
+	}
+
+	// Like valueOf(), but ignores case and returns null instead of throwing when nothing matches.
+	// It compares characters in place, so unlike valueOf(text.toUpperCase()) it allocates nothing.
+	public static Day parse(CharSequence text) {
+		int length = text.length();
+		Day day = length == 0 ? null : CANDIDATES[slot(length, text.charAt(0))];
+		if (day == null || day.name().length() != length) {
+			return null;
+		}
+
+		String name = day.name();
+		for (int i = 0; i < length; i++) {
+			// Setting bit 0x20 turns an ASCII capital letter into its lowercase form.
+			if ((text.charAt(i) | 0x20) != (name.charAt(i) | 0x20)) {
+				return null;
+			}
+		}
+		return day;
+	}
+
+	// The same as parse(CharSequence), for ASCII text in a byte array, such as a line read straight from a file.
+	public static Day parse(byte[] text, int offset, int length) {
+		Day day = length == 0 ? null : CANDIDATES[slot(length, text[offset])];
+		if (day == null || day.name().length() != length) {
+			return null;
+		}
+
+		String name = day.name();
+		for (int i = 0; i < length; i++) {
+			if ((text[offset + i] | 0x20) != (name.charAt(i) | 0x20)) {
+				return null;
+			}
+		}
+		return day;
+	}
+
+	// Upper and lowercase letters share their low five bits. Other lengths and characters may land on
+	// a day's slot too, which is why parse() still compares the whole name.
+	private static int slot(int length, int first) {
+		return (length & 15) << 5 | (first & 31);
+	}
 }
\ No newline at end of file
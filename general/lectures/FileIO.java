@@ -54,8 +54,24 @@ public class FileIO {
 		}
 	}
 
+	private static void asyncFileWritingDemo() {
+		try (AsyncFileWriter writer = new AsyncFileWriter("test.txt", true)) {
+			writer.write("Hello again, World!\n");
+			writer.write("This line was written asynchronously.\n");
+			writer.flush().join();
+		} catch (IOException e) {
+			System.out.println("Could not write to file: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.out.println("Interrupted while writing to file.");
+		} catch (Exception e) {
+			System.out.println("Unexpected error: " + e.getMessage());
+		}
+	}
+
 	public static void main(String[] args) {
 		fileWritingDemo();
+		asyncFileWritingDemo();
 		fileReadingDemo();
 	}
 }
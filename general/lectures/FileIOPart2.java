@@ -1,4 +1,3 @@
-import java.io.File;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
@@ -6,22 +5,11 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 
 public class FileIOPart2 {
-	private static int getLineCount(String path) throws IOException {
-		File file = new File(path);
-		int lineCount = 0;
-
-		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-			while (reader.readLine() != null) {
-				lineCount++;
-			}
-		} catch (IOException e) {
-			throw e;
-		}
-
-		return lineCount;
+	static int getLineCount(String path) throws IOException {
+		return Math.toIntExact(LineCounter.count(path));
 	}
 
-	private static Album[] readAlbumsFromFile(String path) throws IOException {
+	static Album[] readAlbumsFromFile(String path) throws IOException {
 		int numAlbums = getLineCount(path) - 1;
 		Album[] albums = new Album[numAlbums];
 
@@ -47,7 +35,7 @@ public class FileIOPart2 {
 		return albums;
 	}
 
-	private static void writeAlbumToFile(Album album, String path) throws IOException {
+	static void writeAlbumToFile(Album album, String path) throws IOException {
 		try (BufferedWriter writer = new BufferedWriter(new FileWriter(path, true))) {
 			String line = String.format("%d,%d,%s,%s,%s\n", album.getRank(), album.getYear(), album.getTitle(),
 					album.getArtist(), album.getGenre());
@@ -58,6 +46,13 @@ public class FileIOPart2 {
 		}
 	}
 
+	static void writeAlbumToFile(Album album, String path, AlbumIndex index) throws IOException {
+		// Check first, so a rejected album is neither written nor indexed.
+		AlbumIndex.validate(album);
+		writeAlbumToFile(album, path);
+		index.add(album);
+	}
+
 	public static void main(String[] args) {
 		String filePath = "Rolling-Stone-Top-500-Albums.csv";
 
@@ -121,6 +116,6 @@ class Album {
 
 	@Override
 	public String toString() {
-		return String.format("#%d: %s by %s (%d) [%s]", rank, title, artist, year, genre);
+		return String.format("#%d: %s by %s (%d) [%s]", getRank(), getTitle(), getArtist(), getYear(), getGenre());
 	}
 }
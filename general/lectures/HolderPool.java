@@ -0,0 +1,155 @@
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Reuses short-lived holder objects, like the Wrapper in Semantics, instead of allocating a new one for every call.
+// Each thread keeps its own free list, so leasing and returning a holder needs no locks:
+//
+//   try (PooledWrapper w = PooledWrapper.lease(44)) {
+//       referenceSemantics(w);
+//   }
+//
+// A holder must not be used after it is closed, because the next lease() on that thread hands it out again.
+// When a holder never leaves the method that creates it, the JIT's escape analysis can often remove the allocation
+// of a plain `new Wrapper(x)` entirely, and then that is faster than any pool (see HolderPoolBenchmark).
+// Pooling pays off when the holder escapes, for example into a method too large to inline.
+//
+// In debug mode, which is on by default when assertions are enabled (java -ea), every lease records where it happened.
+// A holder that is garbage collected without being closed is reported on System.err with that location.
+public class HolderPool<H extends PooledHolder> {
+	private static final int DEFAULT_MAX_PER_THREAD = 64;
+
+	private final Supplier<H> factory;
+	private final int maxPerThread;
+	private final boolean debug;
+	private final ThreadLocal<FreeList> freeLists;
+	private final LongAdder created = new LongAdder();
+	private final LongAdder leaks = new LongAdder();
+
+	public HolderPool(Supplier<H> factory) {
+		this(factory, DEFAULT_MAX_PER_THREAD, assertionsEnabled());
+	}
+
+	public HolderPool(Supplier<H> factory, int maxPerThread, boolean debug) {
+		if (factory == null) {
+			throw new IllegalArgumentException("Factory cannot be null");
+		}
+		if (maxPerThread < 0) {
+			throw new IllegalArgumentException("Maximum holders per thread cannot be negative");
+		}
+		this.factory = factory;
+		this.maxPerThread = maxPerThread;
+		this.debug = debug;
+		this.freeLists = ThreadLocal.withInitial(() -> new FreeList(maxPerThread));
+	}
+
+	// Returns a holder from this thread's free list, or a new one if the list is empty. Close it when done.
+	@SuppressWarnings("unchecked")
+	public H lease() {
+		FreeList freeList = freeLists.get();
+		H holder;
+		if (freeList.size > 0) {
+			holder = (H) freeList.holders[--freeList.size];
+			freeList.holders[freeList.size] = null;
+		} else {
+			holder = factory.get();
+			holder.pool = this;
+			created.increment();
+		}
+
+		holder.leased = true;
+		holder.home = freeList;
+		if (debug) {
+			LeakDetector.track(holder, this);
+		}
+		return holder;
+	}
+
+	// How many holders the factory has created. Far fewer than the number of leases means the pool is working.
+	public long getCreated() {
+		return created.sum();
+	}
+
+	// How many holders were garbage collected without being closed. Only counted in debug mode.
+	public long getLeaks() {
+		return leaks.sum();
+	}
+
+	public boolean isDebug() {
+		return debug;
+	}
+
+	void release(PooledHolder holder) {
+		if (!holder.leased) {
+			throw new IllegalStateException("Holder was already returned to its pool");
+		}
+		holder.leased = false;
+		if (holder.lease != null) {
+			holder.lease.closed();
+			holder.lease = null;
+		}
+		holder.reset();
+
+		// Most holders are closed on the thread that leased them, which saves a second ThreadLocal lookup.
+		// A holder closed on another thread joins that thread's free list instead.
+		FreeList freeList = holder.home;
+		holder.home = null;
+		if (freeList.owner != Thread.currentThread()) {
+			freeList = freeLists.get();
+		}
+		if (freeList.size < maxPerThread) {
+			freeList.holders[freeList.size++] = holder;
+		}
+	}
+
+	private static boolean assertionsEnabled() {
+		boolean enabled = false;
+		assert enabled = true;
+		return enabled;
+	}
+
+	static final class FreeList {
+		final Thread owner = Thread.currentThread();
+		final PooledHolder[] holders;
+		int size;
+
+		FreeList(int capacity) {
+			holders = new PooledHolder[capacity];
+		}
+	}
+
+	// Uses a Cleaner to find out when a leased holder becomes unreachable. The cleaning action must not refer to
+	// the holder itself, or it would never become unreachable, so it only keeps the place where it was leased.
+	static final class LeakDetector implements Runnable {
+		private static final Cleaner CLEANER = Cleaner.create();
+
+		private final HolderPool<?> pool;
+		private final Throwable leasedAt;
+		private final Cleaner.Cleanable cleanable;
+		private volatile boolean closed;
+
+		private LeakDetector(PooledHolder holder, HolderPool<?> pool) {
+			this.pool = pool;
+			this.leasedAt = new Throwable("Holder leased here was never closed");
+			this.cleanable = CLEANER.register(holder, this);
+		}
+
+		static void track(PooledHolder holder, HolderPool<?> pool) {
+			holder.lease = new LeakDetector(holder, pool);
+		}
+
+		void closed() {
+			closed = true;
+			cleanable.clean();
+		}
+
+		@Override
+		public void run() {
+			if (!closed) {
+				pool.leaks.increment();
+				System.err.println("LEAK: a " + HolderPool.class.getSimpleName() + " holder was garbage collected without being closed");
+				leasedAt.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+// Compares three ways to get a short-lived holder for an int, like the Wrapper in Semantics:
+// 1. new Wrapper(x) that never leaves the loop, which escape analysis can replace with a plain local int.
+// 2. new Wrapper(x) that escapes into a static field, so it really has to be allocated on the heap.
+// 3. PooledWrapper.lease(x), in both situations.
+// For each one, it prints the time and the bytes allocated per operation, measured by AllocationProfile.profile.
+// Run it again with -XX:-DoEscapeAnalysis to see what the first case costs without escape analysis.
+public class HolderPoolBenchmark {
+	private static final int OPERATIONS = 20_000_000;
+
+	// Writing a holder here makes it escape: the JIT can no longer prove it is only used inside the loop.
+	static Object escaped;
+
+	public static void main(String[] args) {
+		AllocationProfile.printHeader();
+		AllocationProfile.profile("new Wrapper, local", HolderPoolBenchmark::newLocal, OPERATIONS);
+		AllocationProfile.profile("PooledWrapper, local", HolderPoolBenchmark::pooledLocal, OPERATIONS);
+		AllocationProfile.profile("new Wrapper, escaping", HolderPoolBenchmark::newEscaping, OPERATIONS);
+		AllocationProfile.profile("PooledWrapper, escaping", HolderPoolBenchmark::pooledEscaping, OPERATIONS);
+		System.out.printf("PooledWrapper created %d holders in total%n", PooledWrapper.pool().getCreated());
+	}
+
+	private static long newLocal() {
+		long sum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			Wrapper w = new Wrapper(i);
+			increment(w);
+			sum += w.x;
+		}
+		return sum;
+	}
+
+	private static long pooledLocal() {
+		long sum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			try (PooledWrapper w = PooledWrapper.lease(i)) {
+				increment(w);
+				sum += w.x;
+			}
+		}
+		return sum;
+	}
+
+	private static long newEscaping() {
+		long sum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			Wrapper w = new Wrapper(i);
+			increment(w);
+			escaped = w;
+			sum += w.x;
+		}
+		return sum;
+	}
+
+	private static long pooledEscaping() {
+		long sum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			try (PooledWrapper w = PooledWrapper.lease(i)) {
+				increment(w);
+				escaped = w;
+				sum += w.x;
+			}
+		}
+		escaped = null;
+		return sum;
+	}
+
+	// The referenceSemantics pattern: the callee changes the caller's int through the holder.
+	private static void increment(Wrapper w) {
+		w.x++;
+	}
+
+	private static void increment(PooledWrapper w) {
+		w.x++;
+	}
+}
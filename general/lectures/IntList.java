@@ -0,0 +1,29 @@
+import java.util.Arrays;
+
+// A growable list of primitive ints, so positions are never boxed into Integer objects.
+class IntList {
+	private int[] values = new int[4];
+	private int size;
+
+	public void add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + size);
+		}
+		return values[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+}
@@ -0,0 +1,60 @@
+// An Album whose text columns are decoded on first use.
+// It keeps a reference to the buffer the file was loaded into, shared by every album from the same load,
+// plus the bounds of its title, artist and genre within that buffer.
+// Each column is decoded the first time its getter is called and cached from then on.
+// If two threads race on the first call, both decode the same value and either result is fine to keep.
+class LazyAlbum extends Album {
+	private final byte[] source;
+	private final int titleStart;
+	private final int titleEnd;
+	private final int artistStart;
+	private final int artistEnd;
+	private final int genreStart;
+	private final int genreEnd;
+
+	private String title;
+	private String artist;
+	private String genre;
+
+	// fields holds the start/end pairs produced by AlbumLoader.splitFields.
+	LazyAlbum(byte[] source, int rank, int year, int[] fields) {
+		super(null, null, rank, year, null);
+		this.source = source;
+		this.titleStart = fields[4];
+		this.titleEnd = fields[5];
+		this.artistStart = fields[6];
+		this.artistEnd = fields[7];
+		this.genreStart = fields[8];
+		this.genreEnd = fields[9];
+	}
+
+	@Override
+	public String getTitle() {
+		String value = title;
+		if (value == null) {
+			value = AlbumLoader.decode(source, titleStart, titleEnd);
+			title = value;
+		}
+		return value;
+	}
+
+	@Override
+	public String getArtist() {
+		String value = artist;
+		if (value == null) {
+			value = AlbumLoader.decode(source, artistStart, artistEnd);
+			artist = value;
+		}
+		return value;
+	}
+
+	@Override
+	public String getGenre() {
+		String value = genre;
+		if (value == null) {
+			value = AlbumLoader.decode(source, genreStart, genreEnd);
+			genre = value;
+		}
+		return value;
+	}
+}
@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.LongStream;
+
+// Counts the lines in a file without decoding characters or creating a String per line.
+// The file is read through a FileChannel in large blocks into a direct buffer,
+// and each block is scanned eight bytes at a time for '\n' and '\r' using SWAR ("SIMD within a register") bit tricks.
+//
+// Lines are counted like BufferedReader.readLine() counts them: a line ends at '\n', '\r' or "\r\n",
+// and a final line without a terminator still counts.
+public class LineCounter {
+	private static final int BLOCK_SIZE = 1 << 20;
+	private static final long MIN_PARALLEL_RANGE = 16L << 20;
+
+	private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+	private static final long CARRIAGE_RETURNS = 0x0D0D0D0D0D0D0D0DL;
+	private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+	public static long count(String path) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long lineBreaks = countLineBreaks(channel, 0, size);
+			return lineBreaks + unterminatedLastLine(channel, size);
+		}
+	}
+
+	// Splits the file into ranges and scans them on the common ForkJoinPool.
+	// Small files are not worth splitting, so they are counted on the calling thread.
+	public static long countParallel(String path) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			long size = channel.size();
+			int ranges = (int) Math.min(Runtime.getRuntime().availableProcessors() * 4L, Math.max(1, size / MIN_PARALLEL_RANGE));
+			long rangeSize = (size + ranges - 1) / ranges;
+
+			long lineBreaks;
+			try {
+				lineBreaks = LongStream.range(0, ranges).parallel().map(i -> {
+					long from = i * rangeSize;
+					long to = Math.min(size, from + rangeSize);
+					try {
+						return countLineBreaks(channel, from, to);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}).sum();
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+
+			return lineBreaks + unterminatedLastLine(channel, size);
+		}
+	}
+
+	// Counts the line breaks in [from, to): every '\r', and every '\n' that does not directly follow a '\r'.
+	// A "\r\n" split across two ranges is counted once, by the range holding the '\r'.
+	// Uses positional reads, so several threads may share one channel.
+	private static long countLineBreaks(FileChannel channel, long from, long to) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(BLOCK_SIZE, Math.max(8, to - from)));
+		long count = 0;
+		long position = from;
+		boolean previousWasCr = from > 0 && byteAt(channel, from - 1) == '\r';
+
+		while (position < to) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), to - position));
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				break;
+			}
+			position += read;
+			buffer.flip();
+			if (buffer.hasRemaining()) {
+				count += countLineBreaks(buffer, previousWasCr);
+				previousWasCr = buffer.get(buffer.limit() - 1) == '\r';
+			}
+		}
+
+		return count;
+	}
+
+	// Every '\n' and every '\r' is a line break, except that "\r\n" is one break, not two:
+	// so the count is the '\n' bytes plus the '\r' bytes minus the '\n' bytes that directly follow a '\r'.
+	private static long countLineBreaks(ByteBuffer buffer, boolean previousWasCr) {
+		long count = 0;
+		int i = buffer.position();
+		int limit = buffer.limit();
+
+		for (; i + 8 <= limit; i += 8) {
+			long word = buffer.getLong(i);
+			long newlines = matchingBytes(word ^ NEWLINES);
+			long carriageReturns = matchingBytes(word ^ CARRIAGE_RETURNS);
+
+			// getLong is big-endian, so the byte after a '\r' is eight bits to its right.
+			// The first byte pairs with the last '\r' of the previous word.
+			long pairs = (carriageReturns >>> 8) & newlines;
+			if (previousWasCr && newlines < 0) {
+				pairs |= Long.MIN_VALUE;
+			}
+			count += Long.bitCount(newlines) + Long.bitCount(carriageReturns) - Long.bitCount(pairs);
+			previousWasCr = (carriageReturns & 0x80) != 0;
+		}
+
+		for (; i < limit; i++) {
+			byte b = buffer.get(i);
+			if (b == '\n') {
+				if (!previousWasCr) {
+					count++;
+				}
+			} else if (b == '\r') {
+				count++;
+			}
+			previousWasCr = b == '\r';
+		}
+
+		return count;
+	}
+
+	// Sets the high bit of every zero byte in word, and clears every other bit.
+	// Adding 0x7F to the low seven bits of a byte sets its high bit unless the byte was zero,
+	// so after the OR and NOT, exactly the zero bytes are left with their high bit set.
+	// XOR a word with a repeated byte first to find the bytes equal to it.
+	private static long matchingBytes(long word) {
+		return ~(((word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | word | LOW_SEVEN_BITS);
+	}
+
+	private static int unterminatedLastLine(FileChannel channel, long size) throws IOException {
+		if (size == 0) {
+			return 0;
+		}
+
+		byte last = byteAt(channel, size - 1);
+		return last == '\n' || last == '\r' ? 0 : 1;
+	}
+
+	private static byte byteAt(FileChannel channel, long position) throws IOException {
+		ByteBuffer one = ByteBuffer.allocate(1);
+		channel.read(one, position);
+		return one.get(0);
+	}
+}
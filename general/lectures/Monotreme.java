@@ -5,6 +5,6 @@ public abstract class Monotreme extends Mammal implements EggLayer {
 
 	@Override
 	public void layEgg() {
-		System.out.printf("%s despite being a mammal, laid an egg!%n", name);
+		output().printf("%s despite being a mammal, laid an egg!%n", name);
 	}
 }
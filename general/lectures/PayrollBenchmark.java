@@ -0,0 +1,104 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+// Compares two ways for many threads to give raises to shared people while keeping a department total:
+// 1. One lock around every read-modify-write of a salary and of the total.
+// 2. Person.getAndUpdateSalary (compare-and-set) with a striped DepartmentPayroll total.
+// Each run also checks that no raise was lost: the total must match the sum of the final salaries.
+public class PayrollBenchmark {
+	private static final int PEOPLE = 1000;
+	private static final int TOTAL_OPERATIONS = 4_000_000;
+	private static final double PERCENT = 0.0001;
+	private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16, 32, 64 };
+
+	public static void main(String[] args) throws InterruptedException {
+		// Warm up both paths so the JIT has compiled them before we measure.
+		for (int i = 0; i < 3; i++) {
+			runLocked(8);
+			runAtomic(8);
+		}
+
+		System.out.printf("%8s %16s %16s%n", "threads", "locked ops/ms", "atomic ops/ms");
+		for (int threads : THREAD_COUNTS) {
+			System.out.printf("%8d %16.0f %16.0f%n", threads, runLocked(threads), runAtomic(threads));
+		}
+	}
+
+	private static double runLocked(int threads) throws InterruptedException {
+		Person[] people = createPeople();
+		Object lock = new Object();
+		double[] total = { sumSalaries(people) };
+		double factor = 1 + PERCENT / 100;
+
+		double opsPerMs = run(threads, () -> {
+			Person person = people[ThreadLocalRandom.current().nextInt(PEOPLE)];
+			synchronized (lock) {
+				double previous = person.getSalary();
+				person.setSalary(previous * factor);
+				total[0] += previous * factor - previous;
+			}
+		});
+
+		check("locked", total[0], people);
+		return opsPerMs;
+	}
+
+	private static double runAtomic(int threads) throws InterruptedException {
+		Person[] people = createPeople();
+		DepartmentPayroll payroll = new DepartmentPayroll("Benchmark");
+		for (Person person : people) {
+			payroll.hire(person);
+		}
+
+		double opsPerMs = run(threads, () -> payroll.giveRaise(people[ThreadLocalRandom.current().nextInt(PEOPLE)], PERCENT));
+
+		check("atomic", payroll.total(), people);
+		return opsPerMs;
+	}
+
+	private static double run(int threads, Runnable operation) throws InterruptedException {
+		int operationsPerThread = TOTAL_OPERATIONS / threads;
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Thread(() -> {
+				for (int j = 0; j < operationsPerThread; j++) {
+					operation.run();
+				}
+			});
+		}
+
+		long start = System.nanoTime();
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		return (double) operationsPerThread * threads / (elapsed / 1e6);
+	}
+
+	private static Person[] createPeople() {
+		Person[] people = new Person[PEOPLE];
+		for (int i = 0; i < PEOPLE; i++) {
+			people[i] = new Person("Employee " + i, 1000000 + i, 50000);
+		}
+		return people;
+	}
+
+	private static double sumSalaries(Person[] people) {
+		double sum = 0;
+		for (Person person : people) {
+			sum += person.getSalary();
+		}
+		return sum;
+	}
+
+	private static void check(String name, double total, Person[] people) {
+		double expected = sumSalaries(people);
+		// The totals are sums of millions of tiny deltas, so allow for floating-point rounding.
+		if (Math.abs(total - expected) > expected * 1e-9) {
+			throw new IllegalStateException(String.format("%s: total $%.2f does not match salaries $%.2f", name, total, expected));
+		}
+	}
+}
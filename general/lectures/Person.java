@@ -1,3 +1,7 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.DoubleUnaryOperator;
+
 class Person {
 	// To ensure proper encapsulation, all fields should be private.
 	// This prevents them from being accessed directly from outside the class.
@@ -8,7 +12,20 @@ class Person {
 	// To enforce this, we selectively expose fields through public 'getter' and 'setter' methods.
 	private String name;
 	private int id;
-	private double salary;
+	// The salary is volatile so that a change made by one thread is always visible to every other thread.
+	// See getAndUpdateSalary() for why that alone is not enough when several threads update it.
+	private volatile double salary;
+
+	// A VarHandle gives us atomic operations, such as compare-and-set, on the salary field.
+	private static final VarHandle SALARY;
+
+	static {
+		try {
+			SALARY = MethodHandles.lookup().findVarHandle(Person.class, "salary", double.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
 
 	// This is a constructor.
 	// Constructors are special methods that are called when an object is created.
@@ -132,6 +149,26 @@ class Person {
 		this.salary = salary;
 	}
 
+	// Something like p.setSalary(p.getSalary() * 1.1) is a read-modify-write: read the salary, compute, write it back.
+	// If two threads do this to the same Person at the same time, both can read the old salary and one raise is lost.
+	// This method applies the update atomically instead, without locking.
+	// It computes the new salary from the current one, and compare-and-set only stores it if the salary
+	// has not changed in the meantime. If it has, we simply try again with the newer value.
+	// The same validation as setSalary applies, and the previous salary is returned.
+	public double getAndUpdateSalary(DoubleUnaryOperator update) {
+		while (true) {
+			double current = salary;
+			double updated = update.applyAsDouble(current);
+			if (updated < 0) {
+				throw new IllegalArgumentException("Salary cannot be negative.");
+			}
+
+			if (SALARY.compareAndSet(this, current, updated)) {
+				return current;
+			}
+		}
+	}
+
 	// The toString method is a special method that is called when an object is printed.
 	// It is also called when an object is concatenated with a String.
 	// It must have the exact signature shown below, and the @Override annotation is required.
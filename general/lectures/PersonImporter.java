@@ -0,0 +1,360 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Imports people from text with one "name,id,salary" row per line, such as "Bob,1294573,55000.00".
+// Each row is checked against the same rules as Person, but without exceptions: a bad row is recorded as an
+// ImportError (row number, field and reason) and the import carries on with the next row.
+// Building a Person throws on the first bad value, and a try/catch around every one of millions of rows is expensive,
+// so this checks the raw bytes directly and only creates objects for the rows that end up in the result.
+// Numbers are accepted exactly when Integer.parseInt and Double.parseDouble accept the trimmed field: plain numbers
+// take a fast path, and rarer forms such as "5e4" are handed to those methods.
+//
+// The input is cut into chunks at line boundaries. In parallel mode, the chunks are parsed and validated on the
+// common ForkJoinPool and then appended to one PersonTable in input order. Empty lines are skipped.
+public class PersonImporter {
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	// Every power of ten up to 1e22 is an exact double.
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+	};
+
+	private final boolean parallel;
+
+	public PersonImporter(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public PersonImportResult importFile(String path) throws IOException {
+		return importBytes(Files.readAllBytes(Paths.get(path)));
+	}
+
+	public PersonImportResult importBytes(byte[] data) {
+		int[] boundaries = chunkBoundaries(data);
+		int chunks = boundaries.length - 1;
+
+		IntStream indexes = IntStream.range(0, chunks);
+		if (parallel) {
+			indexes = indexes.parallel();
+		}
+		ParsedChunk[] parsed = indexes.mapToObj(i -> parseChunk(data, boundaries[i], boundaries[i + 1]))
+				.toArray(ParsedChunk[]::new);
+
+		int rows = 0;
+		for (ParsedChunk chunk : parsed) {
+			rows += chunk.count;
+		}
+
+		PersonTable table = new PersonTable(rows);
+		table.setParallel(parallel);
+		List<ImportError> errors = new ArrayList<>();
+		int linesBefore = 0;
+		for (ParsedChunk chunk : parsed) {
+			for (int i = 0; i < chunk.count; i++) {
+				table.addValidated(data, chunk.nameStarts[i], chunk.nameEnds[i], chunk.ids[i], chunk.salaries[i]);
+			}
+			for (ImportError error : chunk.errors) {
+				errors.add(new ImportError(linesBefore + error.getRow(), error.getField(), error.getReason()));
+			}
+			linesBefore += chunk.lines;
+		}
+
+		return new PersonImportResult(table, errors);
+	}
+
+	// Splits data into pieces of roughly CHUNK_SIZE bytes, moving each cut forward to just after a '\n'.
+	private static int[] chunkBoundaries(byte[] data) {
+		IntList boundaries = new IntList();
+		boundaries.add(0);
+		int position = 0;
+		while (position < data.length) {
+			int cut = Math.min(data.length, position + CHUNK_SIZE);
+			while (cut < data.length && data[cut - 1] != '\n') {
+				cut++;
+			}
+			boundaries.add(cut);
+			position = cut;
+		}
+		return boundaries.toArray();
+	}
+
+	private static ParsedChunk parseChunk(byte[] data, int from, int to) {
+		ParsedChunk chunk = new ParsedChunk();
+		int lineStart = from;
+		while (lineStart < to) {
+			int lineEnd = lineStart;
+			while (lineEnd < to && data[lineEnd] != '\n') {
+				lineEnd++;
+			}
+			chunk.lines++;
+
+			int contentEnd = lineEnd > lineStart && data[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+			if (contentEnd > lineStart) {
+				parseRow(data, lineStart, contentEnd, chunk);
+			}
+			lineStart = lineEnd + 1;
+		}
+		return chunk;
+	}
+
+	private static void parseRow(byte[] data, int start, int end, ParsedChunk chunk) {
+		int row = chunk.lines;
+
+		int firstComma = indexOf(data, ',', start, end);
+		int secondComma = firstComma < 0 ? -1 : indexOf(data, ',', firstComma + 1, end);
+		if (secondComma < 0) {
+			chunk.errors.add(new ImportError(row, "line", "Expected name, id and salary separated by commas."));
+			return;
+		}
+
+		if (isBlank(data, start, firstComma)) {
+			chunk.errors.add(new ImportError(row, "name", "Name cannot be null or blank."));
+			return;
+		}
+
+		long id = parseId(data, firstComma + 1, secondComma);
+		if (id == Long.MIN_VALUE) {
+			chunk.errors.add(new ImportError(row, "id", "ID is not a whole number."));
+			return;
+		}
+		if (id < 1000000 || id > 9999999) {
+			chunk.errors.add(new ImportError(row, "id", "ID must be a 7-digit number."));
+			return;
+		}
+
+		if (!parseSalary(data, secondComma + 1, end, chunk)) {
+			chunk.errors.add(new ImportError(row, "salary", "Salary is not a number."));
+			return;
+		}
+		double salary = chunk.salary;
+		if (salary < 0) {
+			chunk.errors.add(new ImportError(row, "salary", "Salary cannot be negative."));
+			return;
+		}
+
+		chunk.add(start, firstComma, (int) id, salary);
+	}
+
+	private static int indexOf(byte[] data, char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (data[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// Same rule as String.isBlank(). Only names with non-ASCII bytes need to be decoded to check.
+	private static boolean isBlank(byte[] data, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (data[i] < 0) {
+				return new String(data, from, to - from, StandardCharsets.UTF_8).isBlank();
+			}
+			if (!Character.isWhitespace(data[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Parses the field as Integer.parseInt would after trimming it.
+	// Returns Long.MIN_VALUE if the text is not a whole number that fits in an int.
+	private static long parseId(byte[] data, int from, int to) {
+		from = skipSpaces(data, from, to);
+		to = trimSpaces(data, from, to);
+
+		int textStart = from;
+		boolean negative = from < to && data[from] == '-';
+		if (negative || (from < to && data[from] == '+')) {
+			from++;
+		}
+		if (from == to) {
+			return Long.MIN_VALUE;
+		}
+
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			if (data[i] < 0) {
+				// Integer.parseInt also accepts digits from other scripts, which are never ASCII.
+				try {
+					return Integer.parseInt(new String(data, textStart, to - textStart, StandardCharsets.UTF_8));
+				} catch (NumberFormatException e) {
+					return Long.MIN_VALUE;
+				}
+			}
+			int digit = data[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return Long.MIN_VALUE;
+			}
+			value = value * 10 + digit;
+			if (value > Integer.MAX_VALUE + 1L) {
+				return Long.MIN_VALUE;
+			}
+		}
+		value = negative ? -value : value;
+		return value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+	}
+
+	// Parses the field as Double.parseDouble would after trimming it, and stores the result in chunk.salary.
+	// Returns false if the text is not a number.
+	private static boolean parseSalary(byte[] data, int from, int to, ParsedChunk chunk) {
+		from = skipSpaces(data, from, to);
+		to = trimSpaces(data, from, to);
+
+		int signEnd = from < to && (data[from] == '-' || data[from] == '+') ? from + 1 : from;
+		boolean negative = signEnd > from && data[from] == '-';
+		int textStart = from;
+		from = signEnd;
+
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean seenPoint = false;
+		for (int i = from; i < to; i++) {
+			byte b = data[i];
+			if (b == '.' && !seenPoint) {
+				seenPoint = true;
+			} else if (b >= '0' && b <= '9') {
+				if (digits < 18) {
+					mantissa = mantissa * 10 + (b - '0');
+				}
+				digits++;
+				if (seenPoint) {
+					fractionDigits++;
+				}
+			} else {
+				// An exponent, a type suffix, hex, NaN or Infinity. Only text that starts like a number can be one.
+				byte first = from < to ? data[from] : 0;
+				if ((first >= '0' && first <= '9') || first == '.' || first == 'N' || first == 'I') {
+					return parseSlowly(data, textStart, to, chunk);
+				}
+				return false;
+			}
+		}
+		if (digits == 0) {
+			return false;
+		}
+
+		if (digits <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+			// Both operands are exact doubles, so a single division rounds correctly, just like Double.parseDouble.
+			double value = mantissa / POWERS_OF_TEN[fractionDigits];
+			chunk.salary = negative ? -value : value;
+			return true;
+		}
+		return parseSlowly(data, textStart, to, chunk);
+	}
+
+	private static boolean parseSlowly(byte[] data, int from, int to, ParsedChunk chunk) {
+		try {
+			chunk.salary = Double.parseDouble(new String(data, from, to - from, StandardCharsets.UTF_8));
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	// Same rule as String.trim(): anything at or below a space. UTF-8 bytes of other characters are never dropped.
+	private static int skipSpaces(byte[] data, int from, int to) {
+		while (from < to && (data[from] & 0xFF) <= ' ') {
+			from++;
+		}
+		return from;
+	}
+
+	private static int trimSpaces(byte[] data, int from, int to) {
+		while (to > from && (data[to - 1] & 0xFF) <= ' ') {
+			to--;
+		}
+		return to;
+	}
+
+	// The valid rows and errors found in one chunk. Rows are kept as columns, and names as offsets into the input.
+	private static class ParsedChunk {
+		int lines;
+		int count;
+		int[] nameStarts = new int[64];
+		int[] nameEnds = new int[64];
+		int[] ids = new int[64];
+		double[] salaries = new double[64];
+		final List<ImportError> errors = new ArrayList<>();
+		// The value parsed by the most recent successful parseSalary().
+		double salary;
+
+		void add(int nameStart, int nameEnd, int id, double salary) {
+			if (count == ids.length) {
+				nameStarts = Arrays.copyOf(nameStarts, count * 2);
+				nameEnds = Arrays.copyOf(nameEnds, count * 2);
+				ids = Arrays.copyOf(ids, count * 2);
+				salaries = Arrays.copyOf(salaries, count * 2);
+			}
+			nameStarts[count] = nameStart;
+			nameEnds[count] = nameEnd;
+			ids[count] = id;
+			salaries[count] = salary;
+			count++;
+		}
+	}
+}
+
+class PersonImportResult {
+	private final PersonTable table;
+	private final List<ImportError> errors;
+
+	public PersonImportResult(PersonTable table, List<ImportError> errors) {
+		this.table = table;
+		this.errors = errors;
+	}
+
+	public PersonTable getTable() {
+		return table;
+	}
+
+	public Person[] toPersons() {
+		return table.toPersons();
+	}
+
+	public List<ImportError> getErrors() {
+		return errors;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d people imported, %d rows rejected", table.size(), errors.size());
+	}
+}
+
+// Why one row could not be imported. Rows are numbered by line, starting at 1.
+class ImportError {
+	private final int row;
+	private final String field;
+	private final String reason;
+
+	public ImportError(int row, String field, String reason) {
+		this.row = row;
+		this.field = field;
+		this.reason = reason;
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public String getField() {
+		return field;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Row %d, %s: %s", row, field, reason);
+	}
+}
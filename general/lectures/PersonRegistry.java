@@ -0,0 +1,175 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Looks people up by id without hashing or boxing.
+// Person only allows 7-digit ids, so there are just 9,000,000 possible keys and the id itself can be the index.
+// The slots are split into pages of 4096 that are only allocated once something is stored in them,
+// so a sparse registry stays small while a dense one costs about one reference per possible id.
+//
+// In concurrent mode, many threads may get, put and remove at once.
+// Pages are installed and slots are updated with compare-and-set, so there are no locks at all.
+public class PersonRegistry {
+	private static final int MIN_ID = 1000000;
+	private static final int MAX_ID = 9999999;
+	private static final int PAGE_BITS = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final int PAGE_COUNT = ((MAX_ID - MIN_ID) >> PAGE_BITS) + 1;
+
+	private static final VarHandle PAGES = MethodHandles.arrayElementVarHandle(Person[][].class);
+	private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Person[].class);
+
+	private final Person[][] pages = new Person[PAGE_COUNT][];
+	private final boolean concurrent;
+	private final LongAdder concurrentSize;
+	private int size;
+
+	public PersonRegistry(boolean concurrent) {
+		this.concurrent = concurrent;
+		this.concurrentSize = concurrent ? new LongAdder() : null;
+	}
+
+	public boolean isConcurrent() {
+		return concurrent;
+	}
+
+	// Returns the person with the given id, or null if there is none.
+	public Person get(int id) {
+		if (id < MIN_ID || id > MAX_ID) {
+			return null;
+		}
+
+		int index = id - MIN_ID;
+		Person[] page = concurrent ? (Person[]) PAGES.getAcquire(pages, index >> PAGE_BITS) : pages[index >> PAGE_BITS];
+		if (page == null) {
+			return null;
+		}
+		return concurrent ? (Person) SLOTS.getAcquire(page, index & PAGE_MASK) : page[index & PAGE_MASK];
+	}
+
+	public boolean contains(int id) {
+		return get(id) != null;
+	}
+
+	// Stores the person under their id and returns whoever was stored there before, or null.
+	public Person put(Person person) {
+		int index = person.getId() - MIN_ID;
+		Person[] page = pageFor(index);
+		int slot = index & PAGE_MASK;
+
+		Person previous;
+		if (concurrent) {
+			previous = (Person) SLOTS.getAndSet(page, slot, person);
+		} else {
+			previous = page[slot];
+			page[slot] = person;
+		}
+
+		if (previous == null) {
+			incrementSize(1);
+		}
+		return previous;
+	}
+
+	// Stores the person only if nobody has their id yet. Returns the person already stored, or null if this one was stored.
+	public Person putIfAbsent(Person person) {
+		int index = person.getId() - MIN_ID;
+		Person[] page = pageFor(index);
+		int slot = index & PAGE_MASK;
+
+		Person existing;
+		if (concurrent) {
+			existing = (Person) SLOTS.compareAndExchange(page, slot, null, person);
+		} else {
+			existing = page[slot];
+			if (existing == null) {
+				page[slot] = person;
+			}
+		}
+
+		if (existing == null) {
+			incrementSize(1);
+		}
+		return existing;
+	}
+
+	// Removes and returns the person with the given id, or returns null if there is none.
+	public Person remove(int id) {
+		if (id < MIN_ID || id > MAX_ID) {
+			return null;
+		}
+
+		int index = id - MIN_ID;
+		Person[] page = concurrent ? (Person[]) PAGES.getAcquire(pages, index >> PAGE_BITS) : pages[index >> PAGE_BITS];
+		if (page == null) {
+			return null;
+		}
+
+		int slot = index & PAGE_MASK;
+		Person previous;
+		if (concurrent) {
+			previous = (Person) SLOTS.getAndSet(page, slot, null);
+		} else {
+			previous = page[slot];
+			page[slot] = null;
+		}
+
+		if (previous != null) {
+			incrementSize(-1);
+		}
+		return previous;
+	}
+
+	// In concurrent mode this is a snapshot that may miss updates still in progress.
+	public int size() {
+		return concurrent ? concurrentSize.intValue() : size;
+	}
+
+	// Visits every registered person in increasing id order, skipping pages that were never allocated.
+	// In concurrent mode, people registered or removed during the walk may or may not be visited.
+	public void forEach(Consumer<Person> action) {
+		for (int p = 0; p < PAGE_COUNT; p++) {
+			Person[] page = concurrent ? (Person[]) PAGES.getAcquire(pages, p) : pages[p];
+			if (page == null) {
+				continue;
+			}
+
+			for (int slot = 0; slot < PAGE_SIZE; slot++) {
+				Person person = concurrent ? (Person) SLOTS.getAcquire(page, slot) : page[slot];
+				if (person != null) {
+					action.accept(person);
+				}
+			}
+		}
+	}
+
+	private Person[] pageFor(int index) {
+		int p = index >> PAGE_BITS;
+		if (!concurrent) {
+			if (pages[p] == null) {
+				pages[p] = new Person[PAGE_SIZE];
+			}
+			return pages[p];
+		}
+
+		Person[] page = (Person[]) PAGES.getAcquire(pages, p);
+		if (page != null) {
+			return page;
+		}
+
+		// Several threads may race to install the page- whoever loses uses the winner's page.
+		Person[] created = new Person[PAGE_SIZE];
+		Person[] winner = (Person[]) PAGES.compareAndExchange(pages, p, null, created);
+		return winner == null ? created : winner;
+	}
+
+	private void incrementSize(int delta) {
+		if (concurrent) {
+			concurrentSize.add(delta);
+		} else {
+			size += delta;
+		}
+	}
+}
@@ -0,0 +1,271 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// A binary file of Person records that is memory-mapped instead of parsed.
+// Opening a store only maps the file, so it takes the same time for ten records as for ten million.
+//
+// Layout (big-endian):
+//   header   64 bytes: magic, version, record count, padding, then the offsets of the sections below
+//   records  24 bytes each: int id, int name length, double salary, long name offset into the name heap
+//   index    4 bytes per record: record numbers sorted by id, for binary search
+//   names    the UTF-8 names, back to back
+//
+// Only salaries can change after the store is created, and only one thread or process should write at a time.
+// Salaries are read and written atomically, and a seqlock lets readers take a consistent snapshot of all salaries
+// even while the writer is updating them, as long as they share the writer's PersonStore.
+// The seqlock lives in this object, not in the file, so a writer that dies halfway through an update
+// cannot leave it locked for everyone who opens the file later.
+// A mapping cannot be larger than 2 GB, which is about 50 million records with short names.
+public class PersonStore implements Closeable {
+	private static final int MAGIC = 0x50455253;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int RECORD_SIZE = 24;
+
+	private static final int COUNT_OFFSET = 8;
+	private static final int RECORDS_OFFSET = 24;
+	private static final int INDEX_OFFSET = 32;
+	private static final int NAMES_OFFSET = 40;
+
+	private static final VarHandle DOUBLES = MethodHandles.byteBufferViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int count;
+	private final int recordsStart;
+	private final int indexStart;
+	private final int namesStart;
+
+	// Odd while setSalaries() is updating, so snapshotSalaries() knows to retry.
+	private volatile long sequence;
+
+	private PersonStore(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+		this.channel = channel;
+		this.buffer = buffer;
+
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a person store: bad magic number");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported person store version " + buffer.getInt(4));
+		}
+
+		int count = buffer.getInt(COUNT_OFFSET);
+		long recordsStart = buffer.getLong(RECORDS_OFFSET);
+		long indexStart = buffer.getLong(INDEX_OFFSET);
+		long namesStart = buffer.getLong(NAMES_OFFSET);
+		// Check that the sections are in order and inside the file, so a damaged header fails here
+		// instead of as an IndexOutOfBoundsException on some later read.
+		if (count < 0 || recordsStart < HEADER_SIZE || indexStart < recordsStart + (long) RECORD_SIZE * count
+				|| namesStart < indexStart + 4L * count || namesStart > buffer.capacity()) {
+			throw new IOException("Person store is damaged: header does not match a file of " + buffer.capacity() + " bytes");
+		}
+		this.count = count;
+		this.recordsStart = (int) recordsStart;
+		this.indexStart = (int) indexStart;
+		this.namesStart = (int) namesStart;
+	}
+
+	public static void create(String path, Person[] people) throws IOException {
+		create(path, PersonTable.fromPersons(people));
+	}
+
+	// Writes a new store with one record per row of the table, replacing any existing file atomically.
+	public static void create(String path, PersonTable table) throws IOException {
+		int count = table.size();
+		byte[][] names = new byte[count][];
+		long namesSize = 0;
+		for (int i = 0; i < count; i++) {
+			names[i] = table.getName(i).getBytes(StandardCharsets.UTF_8);
+			namesSize += names[i].length;
+		}
+
+		long recordsStart = HEADER_SIZE;
+		long indexStart = recordsStart + (long) RECORD_SIZE * count;
+		long namesStart = indexStart + 4L * count;
+		long size = namesStart + namesSize;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A person store cannot be larger than 2 GB, but this one would be " + size + " bytes");
+		}
+
+		// Sort record numbers by id. Packing (id, record) into a long lets a primitive sort do the work.
+		long[] byId = new long[count];
+		for (int i = 0; i < count; i++) {
+			byId[i] = ((long) table.getId(i) << 32) | i;
+		}
+		Arrays.sort(byId);
+		for (int i = 1; i < count; i++) {
+			if ((byId[i] >>> 32) == (byId[i - 1] >>> 32)) {
+				throw new IllegalArgumentException("Duplicate ID " + (byId[i] >>> 32));
+			}
+		}
+
+		Path target = Paths.get(path);
+		Path temporary = Paths.get(path + ".tmp");
+		try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			MappedByteBuffer out = file.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			out.putInt(0, MAGIC);
+			out.putInt(4, VERSION);
+			out.putInt(COUNT_OFFSET, count);
+			out.putLong(RECORDS_OFFSET, recordsStart);
+			out.putLong(INDEX_OFFSET, indexStart);
+			out.putLong(NAMES_OFFSET, namesStart);
+
+			long nameOffset = 0;
+			for (int i = 0; i < count; i++) {
+				int record = (int) (recordsStart + (long) RECORD_SIZE * i);
+				out.putInt(record, table.getId(i));
+				out.putInt(record + 4, names[i].length);
+				out.putDouble(record + 8, table.getSalary(i));
+				out.putLong(record + 16, nameOffset);
+
+				out.position((int) (namesStart + nameOffset));
+				out.put(names[i]);
+				nameOffset += names[i].length;
+			}
+
+			for (int i = 0; i < count; i++) {
+				out.putInt((int) (indexStart + 4L * i), (int) byId[i]);
+			}
+
+			out.force();
+		}
+		Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static PersonStore open(String path) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Person store is larger than 2 GB");
+			}
+			return new PersonStore(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int getId(int record) {
+		return buffer.getInt(recordOffset(record));
+	}
+
+	public String getName(int record) {
+		int offset = recordOffset(record);
+		int length = buffer.getInt(offset + 4);
+		int start = namesStart + (int) buffer.getLong(offset + 16);
+
+		byte[] name = new byte[length];
+		buffer.get(start, name);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	public double getSalary(int record) {
+		return (double) DOUBLES.getVolatile(buffer, recordOffset(record) + 8);
+	}
+
+	public Person toPerson(int record) {
+		return new Person(getName(record), getId(record), getSalary(record));
+	}
+
+	// Returns the record number of the person with the given id, or -1 if there is none.
+	public int findById(int id) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int record = buffer.getInt(indexStart + 4 * mid);
+			int midId = getId(record);
+			if (midId < id) {
+				low = mid + 1;
+			} else if (midId > id) {
+				high = mid - 1;
+			} else {
+				return record;
+			}
+		}
+		return -1;
+	}
+
+	// Overwrites one salary in place. Only one writer may update the store at a time.
+	public void setSalary(int record, double salary) {
+		setSalaries(new int[] { record }, new double[] { salary });
+	}
+
+	// Overwrites several salaries in place as one update: a snapshot sees all of them or none of them.
+	public void setSalaries(int[] records, double[] salaries) {
+		if (records.length != salaries.length) {
+			throw new IllegalArgumentException("Records and salaries must have the same length.");
+		}
+		for (int i = 0; i < records.length; i++) {
+			recordOffset(records[i]);
+			if (salaries[i] < 0) {
+				throw new IllegalArgumentException("Salary cannot be negative.");
+			}
+		}
+
+		// An odd sequence number tells readers that an update is in progress.
+		long current = sequence;
+		sequence = current + 1;
+		for (int i = 0; i < records.length; i++) {
+			DOUBLES.setVolatile(buffer, recordOffset(records[i]) + 8, salaries[i]);
+		}
+		sequence = current + 2;
+	}
+
+	// Copies every salary as of a single point in time, retrying if the writer was updating while we copied.
+	public double[] snapshotSalaries() {
+		double[] salaries = new double[count];
+		while (true) {
+			long before = sequence;
+			if ((before & 1) != 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+
+			for (int i = 0; i < count; i++) {
+				salaries[i] = (double) DOUBLES.getVolatile(buffer, recordsStart + RECORD_SIZE * i + 8);
+			}
+
+			if (sequence == before) {
+				return salaries;
+			}
+		}
+	}
+
+	// Flushes in-place updates to the storage device.
+	public void force() {
+		buffer.force();
+	}
+
+	// The mapping itself stays valid until it is garbage collected; Java has no public way to unmap it sooner.
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+	private int recordOffset(int record) {
+		if (record < 0 || record >= count) {
+			throw new IndexOutOfBoundsException("Record " + record + " is out of bounds for size " + count);
+		}
+		return recordsStart + RECORD_SIZE * record;
+	}
+}
@@ -0,0 +1,240 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Stores many people column by column instead of as one Person object per row.
+// IntroToOOP warns against parallel arrays for everyday code, and Person is still the right choice for that.
+// For batch jobs over millions of rows, though, keeping each column in its own primitive array means a loop over
+// salaries touches nothing but salaries, so it runs through memory sequentially without chasing references.
+//
+// Rows follow the same rules as Person: a non-blank name, a 7-digit id, and a non-negative salary.
+// Names are packed as UTF-8 into one byte pool; row i's name is namePool[nameOffsets[i], nameOffsets[i + 1]).
+// Bulk operations optionally split the rows into chunks and run them on the common ForkJoinPool.
+public class PersonTable {
+	private static final int PARALLEL_CHUNK = 64 * 1024;
+
+	private int[] ids;
+	private double[] salaries;
+	private byte[] namePool;
+	private int[] nameOffsets;
+	private int size;
+	private boolean parallel;
+
+	public PersonTable() {
+		this(16);
+	}
+
+	public PersonTable(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative.");
+		}
+
+		ids = new int[capacity];
+		salaries = new double[capacity];
+		namePool = new byte[capacity * 8];
+		nameOffsets = new int[capacity + 1];
+	}
+
+	public static PersonTable fromPersons(Person[] people) {
+		PersonTable table = new PersonTable(people.length);
+		for (int i = 0; i < people.length; i++) {
+			table.add(people[i]);
+		}
+		return table;
+	}
+
+	public int add(Person person) {
+		return add(person.getName(), person.getId(), person.getSalary());
+	}
+
+	// Validates and appends a row, returning its row number.
+	public int add(String name, int id, double salary) {
+		if (name == null || name.isBlank()) {
+			throw new IllegalArgumentException("Name cannot be null or blank.");
+		}
+		if (id < 1000000 || id > 9999999) {
+			throw new IllegalArgumentException("ID must be a 7-digit number.");
+		}
+		if (salary < 0) {
+			throw new IllegalArgumentException("Salary cannot be negative.");
+		}
+
+		byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+		return addValidated(encoded, 0, encoded.length, id, salary);
+	}
+
+	// Appends a row whose name is already UTF-8 encoded in source[nameStart, nameEnd).
+	// The caller must have validated the row with the same rules as add().
+	int addValidated(byte[] source, int nameStart, int nameEnd, int id, double salary) {
+		if (size == ids.length) {
+			int capacity = Math.max(16, ids.length * 2);
+			ids = Arrays.copyOf(ids, capacity);
+			salaries = Arrays.copyOf(salaries, capacity);
+			nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+		}
+
+		int nameLength = nameEnd - nameStart;
+		int poolStart = nameOffsets[size];
+		if (poolStart + nameLength > namePool.length) {
+			namePool = Arrays.copyOf(namePool, Math.max(namePool.length * 2, poolStart + nameLength));
+		}
+		System.arraycopy(source, nameStart, namePool, poolStart, nameLength);
+
+		ids[size] = id;
+		salaries[size] = salary;
+		nameOffsets[size + 1] = poolStart + nameLength;
+		return size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	// When enabled, bulk operations over more than one chunk of rows run in parallel.
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public String getName(int row) {
+		checkRow(row);
+		return new String(namePool, nameOffsets[row], nameOffsets[row + 1] - nameOffsets[row], StandardCharsets.UTF_8);
+	}
+
+	public int getId(int row) {
+		checkRow(row);
+		return ids[row];
+	}
+
+	public double getSalary(int row) {
+		checkRow(row);
+		return salaries[row];
+	}
+
+	public void setSalary(int row, double salary) {
+		checkRow(row);
+		if (salary < 0) {
+			throw new IllegalArgumentException("Salary cannot be negative.");
+		}
+		salaries[row] = salary;
+	}
+
+	public Person toPerson(int row) {
+		return new Person(getName(row), getId(row), getSalary(row));
+	}
+
+	public Person[] toPersons() {
+		Person[] people = new Person[size];
+		for (int i = 0; i < size; i++) {
+			people[i] = toPerson(i);
+		}
+		return people;
+	}
+
+	// Gives every row a raise of the given percentage, so giveRaise(10) multiplies each salary by 1.1.
+	public void giveRaise(double percent) {
+		double factor = raiseFactor(percent);
+		forEachChunk(size, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				salaries[i] *= factor;
+			}
+		});
+	}
+
+	// Gives a raise to the listed rows only. Each row should be listed at most once.
+	public void giveRaise(double percent, int[] rows) {
+		double factor = raiseFactor(percent);
+		for (int i = 0; i < rows.length; i++) {
+			checkRow(rows[i]);
+		}
+		forEachChunk(rows.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				salaries[rows[i]] *= factor;
+			}
+		});
+	}
+
+	// Returns the rows whose salary is between minSalary and maxSalary (both inclusive), in row order.
+	public int[] selectBySalary(double minSalary, double maxSalary) {
+		int[] rows = new int[size];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			double salary = salaries[i];
+			if (salary >= minSalary && salary <= maxSalary) {
+				rows[count++] = i;
+			}
+		}
+		return Arrays.copyOf(rows, count);
+	}
+
+	public double sumSalaries() {
+		if (!parallel || size <= PARALLEL_CHUNK) {
+			return sum(0, size);
+		}
+
+		int chunks = (size + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+		return IntStream.range(0, chunks).parallel()
+				.mapToDouble(chunk -> sum(chunk * PARALLEL_CHUNK, Math.min(size, (chunk + 1) * PARALLEL_CHUNK)))
+				.sum();
+	}
+
+	// Returns the salary at the given percentile (0 to 100) using the nearest-rank method.
+	public double salaryPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+		}
+		if (size == 0) {
+			throw new IllegalStateException("Table is empty.");
+		}
+
+		double[] sorted = Arrays.copyOf(salaries, size);
+		if (parallel) {
+			Arrays.parallelSort(sorted);
+		} else {
+			Arrays.sort(sorted);
+		}
+
+		int rank = (int) Math.ceil(percentile / 100 * size);
+		return sorted[Math.max(0, rank - 1)];
+	}
+
+	private double sum(int from, int to) {
+		double total = 0;
+		for (int i = from; i < to; i++) {
+			total += salaries[i];
+		}
+		return total;
+	}
+
+	private void forEachChunk(int count, RowRange action) {
+		if (!parallel || count <= PARALLEL_CHUNK) {
+			action.run(0, count);
+			return;
+		}
+
+		int chunks = (count + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+		IntStream.range(0, chunks).parallel()
+				.forEach(chunk -> action.run(chunk * PARALLEL_CHUNK, Math.min(count, (chunk + 1) * PARALLEL_CHUNK)));
+	}
+
+	private static double raiseFactor(double percent) {
+		// A raise below -100% would make salaries negative.
+		if (percent < -100) {
+			throw new IllegalArgumentException("Raise cannot be below -100 percent.");
+		}
+		return 1 + percent / 100;
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row " + row + " is out of bounds for size " + size);
+		}
+	}
+
+	private interface RowRange {
+		void run(int from, int to);
+	}
+}
@@ -5,6 +5,6 @@ public final class Platypus extends Monotreme {
 
 	@Override
 	public void speak() {
-		System.out.println("Quack?");
+		output().println("Quack?");
 	}
 }
@@ -0,0 +1,15 @@
+// The base class for objects handed out by a HolderPool. Closing a holder returns it to its pool.
+abstract class PooledHolder implements AutoCloseable {
+	HolderPool<?> pool;
+	boolean leased;
+	HolderPool.FreeList home;
+	HolderPool.LeakDetector lease;
+
+	// Called when the holder is returned, so the next lease starts from a clean state.
+	protected abstract void reset();
+
+	@Override
+	public final void close() {
+		pool.release(this);
+	}
+}
@@ -0,0 +1,21 @@
+// A pooled version of Wrapper from Semantics: the same public int x, but leased instead of created with new.
+class PooledWrapper extends PooledHolder {
+	private static final HolderPool<PooledWrapper> POOL = new HolderPool<>(PooledWrapper::new);
+
+	public int x;
+
+	public static PooledWrapper lease(int x) {
+		PooledWrapper wrapper = POOL.lease();
+		wrapper.x = x;
+		return wrapper;
+	}
+
+	public static HolderPool<PooledWrapper> pool() {
+		return POOL;
+	}
+
+	@Override
+	protected void reset() {
+		x = 0;
+	}
+}
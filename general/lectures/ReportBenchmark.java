@@ -0,0 +1,73 @@
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+// Compares printing report rows through toString() (and so String.format) and a BufferedWriter with ReportWriter.
+// Both write to a stream that discards its input, so only the formatting cost is measured.
+// Before timing anything, it checks that both approaches produce exactly the same bytes.
+public class ReportBenchmark {
+	private static final int ROWS = 1_000_000;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException {
+		Random random = new Random(42);
+		Person[] people = new Person[ROWS];
+		Album[] albums = new Album[ROWS];
+		Animal[] animals = new Animal[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			// Salaries with up to three decimals, so plenty of them sit right on a rounding boundary.
+			people[i] = new Person("Employee " + i, 1000000 + random.nextInt(9000000), random.nextInt(100_000_000) / 1000.0);
+			albums[i] = new Album("Title " + i, "Artist " + random.nextInt(1000), i + 1, 1950 + random.nextInt(70), "Rock");
+			animals[i] = i % 2 == 0 ? new Dog("Dog " + i, random.nextInt(20), "Brown") : new Bird("Bird " + i, random.nextInt(20));
+		}
+
+		byte[] expected = withToString(people, albums, animals, new ByteArrayOutputStream());
+		byte[] actual = withReportWriter(people, albums, animals, new ByteArrayOutputStream());
+		if (!Arrays.equals(expected, actual)) {
+			throw new IllegalStateException("ReportWriter output differs from toString() output");
+		}
+		System.out.printf("Outputs match (%d bytes)%n", expected.length);
+
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			withToString(people, albums, animals, OutputStream.nullOutputStream());
+			long middle = System.nanoTime();
+			withReportWriter(people, albums, animals, OutputStream.nullOutputStream());
+			long end = System.nanoTime();
+
+			System.out.printf("Round %d: toString %d ms, ReportWriter %d ms (%.1fx)%n", round + 1, (middle - start) / 1_000_000,
+					(end - middle) / 1_000_000, (double) (middle - start) / (end - middle));
+		}
+	}
+
+	private static byte[] withToString(Person[] people, Album[] albums, Animal[] animals, OutputStream out) throws IOException {
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024)) {
+			for (int i = 0; i < ROWS; i++) {
+				writer.write(people[i].toString());
+				writer.write('\n');
+				writer.write(albums[i].toString());
+				writer.write('\n');
+				writer.write(animals[i].toString());
+				writer.write('\n');
+			}
+		}
+		return out instanceof ByteArrayOutputStream ? ((ByteArrayOutputStream) out).toByteArray() : null;
+	}
+
+	private static byte[] withReportWriter(Person[] people, Album[] albums, Animal[] animals, OutputStream out) throws IOException {
+		try (ReportWriter writer = new ReportWriter(Channels.newChannel(out))) {
+			for (int i = 0; i < ROWS; i++) {
+				writer.write(people[i]);
+				writer.write(albums[i]);
+				writer.write(animals[i]);
+			}
+		}
+		return out instanceof ByteArrayOutputStream ? ((ByteArrayOutputStream) out).toByteArray() : null;
+	}
+}
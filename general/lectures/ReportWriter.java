@@ -0,0 +1,198 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+// Writes Person, Album and Animal records to a channel, one per line, in exactly the format of their toString() methods.
+// Instead of building a String with String.format for every record, each field is encoded straight into one
+// reusable buffer as UTF-8: text is copied char by char, and ints and %.2f salaries are formatted by hand.
+// Writing a record allocates nothing, and the buffer goes to the channel only when it fills up or on flush().
+//
+// String.format follows the default locale. If that locale does not use ASCII digits, '.' and '-',
+// numbers are formatted with String.format so the output still matches toString().
+public class ReportWriter implements Closeable {
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	// Above this, a salary times 100 is too coarse to round by hand safely.
+	private static final double MAX_FAST_FIXED = 1e12;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final byte[] digits = new byte[20];
+	private final boolean asciiNumbers;
+
+	public ReportWriter(WritableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	public ReportWriter(WritableByteChannel channel, int bufferSize) {
+		if (channel == null) {
+			throw new IllegalArgumentException("Channel cannot be null");
+		}
+		if (bufferSize < 16) {
+			throw new IllegalArgumentException("Buffer size must be at least 16 bytes");
+		}
+
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+		this.asciiNumbers = symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.' && symbols.getMinusSign() == '-';
+	}
+
+	// "Name: %s, ID: %d, Salary: $%.2f"
+	public void write(Person person) throws IOException {
+		putAscii("Name: ");
+		putText(person.getName());
+		putAscii(", ID: ");
+		putInt(person.getId());
+		putAscii(", Salary: $");
+		putFixed2(person.getSalary());
+		putByte('\n');
+	}
+
+	// "#%d: %s by %s (%d) [%s]"
+	public void write(Album album) throws IOException {
+		putByte('#');
+		putInt(album.getRank());
+		putAscii(": ");
+		putText(album.getTitle());
+		putAscii(" by ");
+		putText(album.getArtist());
+		putAscii(" (");
+		putInt(album.getYear());
+		putAscii(") [");
+		putText(album.getGenre());
+		putAscii("]\n");
+	}
+
+	// "%s is %d years old"
+	public void write(Animal animal) throws IOException {
+		putText(animal.getName());
+		putAscii(" is ");
+		putInt(animal.getAge());
+		putAscii(" years old\n");
+	}
+
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+
+	private void putByte(char c) throws IOException {
+		ensure(1);
+		buffer.put((byte) c);
+	}
+
+	// Only for the literal parts of the formats, which are plain ASCII.
+	private void putAscii(String text) throws IOException {
+		ensure(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			buffer.put((byte) text.charAt(i));
+		}
+	}
+
+	// Encodes text as UTF-8 the same way String.getBytes does, including '?' for an unpaired surrogate.
+	private void putText(String text) throws IOException {
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			ensure(4);
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				buffer.put((byte) c);
+			} else if (c < 0x800) {
+				buffer.put((byte) (0xC0 | (c >> 6)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, text.charAt(++i));
+				buffer.put((byte) (0xF0 | (codePoint >> 18)));
+				buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+			} else if (Character.isSurrogate(c)) {
+				buffer.put((byte) '?');
+			} else {
+				buffer.put((byte) (0xE0 | (c >> 12)));
+				buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+	}
+
+	private void putInt(int value) throws IOException {
+		if (!asciiNumbers) {
+			putText(String.format("%d", value));
+			return;
+		}
+		putLong(value);
+	}
+
+	private void putLong(long value) throws IOException {
+		ensure(20);
+		if (value < 0) {
+			buffer.put((byte) '-');
+		}
+
+		// Work with the negative value so Long.MIN_VALUE needs no special case.
+		long remaining = value < 0 ? value : -value;
+		int count = 0;
+		do {
+			digits[count++] = (byte) ('0' - (remaining % 10));
+			remaining /= 10;
+		} while (remaining != 0);
+
+		while (count > 0) {
+			buffer.put(digits[--count]);
+		}
+	}
+
+	// Formats like "%.2f". String.format rounds the shortest decimal representation of the double half-up,
+	// so when value * 100 lands within rounding error of a .5 boundary, or the value is too large or not finite,
+	// we let String.format decide. Everything else rounds the same either way.
+	private void putFixed2(double value) throws IOException {
+		double magnitude = Math.abs(value);
+		if (!asciiNumbers || !(magnitude < MAX_FAST_FIXED)) {
+			putText(String.format("%.2f", value));
+			return;
+		}
+
+		double scaled = magnitude * 100;
+		double whole = Math.floor(scaled);
+		double fraction = scaled - whole;
+		if (Math.abs(fraction - 0.5) <= Math.max(1e-7, 8 * Math.ulp(scaled))) {
+			putText(String.format("%.2f", value));
+			return;
+		}
+
+		long cents = (long) whole + (fraction > 0.5 ? 1 : 0);
+		ensure(24);
+		// String.format keeps the sign of negative values that round to zero, including -0.0.
+		if (value < 0 || (value == 0 && Double.doubleToRawLongBits(value) != 0)) {
+			buffer.put((byte) '-');
+		}
+		putLong(cents / 100);
+		buffer.put((byte) '.');
+		buffer.put((byte) ('0' + (cents / 10) % 10));
+		buffer.put((byte) ('0' + cents % 10));
+	}
+}